@@ -0,0 +1,197 @@
+package itep.software.bluemoon.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itep.software.bluemoon.BlueMoonManagementApplication;
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.Building;
+import itep.software.bluemoon.entity.Vehicle;
+import itep.software.bluemoon.entity.accounting.PriceTier;
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.entity.accounting.UsageRecord;
+import itep.software.bluemoon.entity.person.Resident;
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.ResidentStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.enumeration.TierCode;
+import itep.software.bluemoon.enumeration.VehicleType;
+import itep.software.bluemoon.model.projection.InvoiceSummary;
+import itep.software.bluemoon.repository.ApartmentRepository;
+import itep.software.bluemoon.repository.BuildingRepository;
+import itep.software.bluemoon.repository.ResidentRepository;
+import itep.software.bluemoon.repository.ServicePriceRepository;
+import itep.software.bluemoon.repository.ServiceTypeRepository;
+import itep.software.bluemoon.repository.UsageRecordRepository;
+import itep.software.bluemoon.repository.VehicleRepository;
+
+/**
+ * Chạy trọn InvoiceService.generateBatchInvoice trên PostgreSQL cục bộ với dữ liệu tổng hợp.
+ * Schema được tạo lại (create-drop) nên hãy trỏ tới một database riêng cho benchmark:
+ *   mvn -P jmh test-compile exec:exec -Djmh.args="GenerateBatchInvoice -jvmArgsAppend -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bluemoon_bench"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerateBatchInvoiceBenchmark {
+    private static final int MONTH = 1;
+    private static final int YEAR = 2025;
+    private static final int APARTMENTS_PER_BUILDING = 250;
+
+    @Param({ "1000", "5000" })
+    private int apartments;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("benchmark.jdbc.url");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("Set -Dbenchmark.jdbc.url (see class comment) to run this benchmark");
+        }
+
+        context = new SpringApplicationBuilder(BlueMoonManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.username=" + System.getProperty("benchmark.jdbc.user", "postgres"),
+                        "spring.datasource.password=" + System.getProperty("benchmark.jdbc.password", "postgres"),
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=500",
+                        "spring.jpa.properties.hibernate.order_inserts=true",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        invoiceService = context.getBean(InvoiceService.class);
+
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(tx -> seed());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<InvoiceSummary> generateBatchInvoice() {
+        return invoiceService.generateBatchInvoice(MONTH, YEAR, GenerationMode.FULL);
+    }
+
+    private void seed() {
+        ServiceTypeRepository serviceTypeRepository = context.getBean(ServiceTypeRepository.class);
+        ServiceType management = serviceTypeRepository.save(serviceType("Phí quản lý", ServiceCode.MANAGEMENT, "m2"));
+        ServiceType parking = serviceTypeRepository.save(serviceType("Phí gửi xe", ServiceCode.PARKING, "xe"));
+        ServiceType electricity = serviceTypeRepository.save(serviceType("Tiền điện", ServiceCode.ELECTRICITY, "kWh"));
+        ServiceType water = serviceTypeRepository.save(serviceType("Tiền nước", ServiceCode.WATER, "m3"));
+        serviceTypeRepository.save(serviceType("Phí khác", ServiceCode.OTHER, "lần"));
+
+        ServicePriceRepository servicePriceRepository = context.getBean(ServicePriceRepository.class);
+        servicePriceRepository.save(ServicePrice.builder()
+                .serviceType(management).startDate(LocalDate.of(2020, 1, 1)).isFlat(true)
+                .flatPrice(BigDecimal.valueOf(7_000)).tiers(new ArrayList<>()).build());
+        servicePriceRepository.save(tiered(parking, new TierCode[] { TierCode.BIKE, TierCode.MOTO, TierCode.CAR },
+                new int[] { 0, 0, 0 }, new Integer[] { null, null, null }, 50_000, 120_000, 1_200_000));
+        servicePriceRepository.save(tiered(electricity, null,
+                new int[] { 0, 50, 100, 200, 300, 400 }, new Integer[] { 50, 100, 200, 300, 400, null },
+                1_806, 1_866, 2_167, 2_729, 3_050, 3_151));
+        servicePriceRepository.save(tiered(water, null,
+                new int[] { 0, 10, 20, 30 }, new Integer[] { 10, 20, 30, null }, 5_973, 7_052, 8_669, 15_929));
+
+        List<Building> buildings = new ArrayList<>();
+        for (int b = 0; b * APARTMENTS_PER_BUILDING < apartments; b++) {
+            buildings.add(Building.builder().name("BENCH-" + b).build());
+        }
+        context.getBean(BuildingRepository.class).saveAll(buildings);
+
+        List<Apartment> apartmentList = new ArrayList<>();
+        List<Resident> residents = new ArrayList<>();
+        List<Vehicle> vehicles = new ArrayList<>();
+        List<UsageRecord> usages = new ArrayList<>();
+        for (int i = 0; i < apartments; i++) {
+            Apartment apartment = Apartment.builder()
+                    .roomNumber(100 + i)
+                    .floor(1 + i / 10)
+                    .area(BigDecimal.valueOf(5_000 + (i % 7_000), 2))
+                    .building(buildings.get(i / APARTMENTS_PER_BUILDING))
+                    .build();
+            apartmentList.add(apartment);
+            Resident resident = Resident.builder()
+                    .fullName("Resident " + i)
+                    .status(ResidentStatus.PERMANENT_RESIDENCE)
+                    .apartment(apartment)
+                    .build();
+            residents.add(resident);
+            vehicles.add(Vehicle.builder().name("Moto " + i).type(VehicleType.MOTORBIKE).owner(resident).build());
+            usages.add(usage(apartment, electricity, 1_000, 1_000 + (i * 37L) % 600));
+            usages.add(usage(apartment, water, 200, 200 + (i * 13L) % 40));
+        }
+        context.getBean(ApartmentRepository.class).saveAll(apartmentList);
+        context.getBean(ResidentRepository.class).saveAll(residents);
+        context.getBean(VehicleRepository.class).saveAll(vehicles);
+        context.getBean(UsageRecordRepository.class).saveAll(usages);
+    }
+
+    private static ServiceType serviceType(String title, ServiceCode code, String unit) {
+        return ServiceType.builder().title(title).code(code).unit(unit).build();
+    }
+
+    private static ServicePrice tiered(ServiceType type, TierCode[] codes, int[] mins, Integer[] maxes, long... prices) {
+        ServicePrice price = ServicePrice.builder()
+                .serviceType(type)
+                .startDate(LocalDate.of(2020, 1, 1))
+                .isFlat(false)
+                .tiers(new ArrayList<>())
+                .build();
+        for (int i = 0; i < prices.length; i++) {
+            price.getTiers().add(PriceTier.builder()
+                    .code(codes != null ? codes[i] : null)
+                    .minUsage(mins[i])
+                    .maxUsage(maxes[i])
+                    .unitPrice(BigDecimal.valueOf(prices[i]))
+                    .servicePrice(price)
+                    .build());
+        }
+        return price;
+    }
+
+    private static UsageRecord usage(Apartment apartment, ServiceType type, long oldIndex, long newIndex) {
+        return UsageRecord.builder()
+                .apartment(apartment)
+                .serviceType(type)
+                .month(MONTH)
+                .year(YEAR)
+                .oldIndex(BigDecimal.valueOf(oldIndex))
+                .newIndex(BigDecimal.valueOf(newIndex))
+                .quantity(BigDecimal.valueOf(newIndex - oldIndex))
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package itep.software.bluemoon.service;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.Building;
+import itep.software.bluemoon.entity.accounting.UsageRecord;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.DTO.accounting.usage.UsageImportDTO;
+import itep.software.bluemoon.repository.ApartmentRepository;
+import itep.software.bluemoon.repository.ServiceTypeRepository;
+import itep.software.bluemoon.repository.UsageRecordRepository;
+
+/**
+ * UsageImportService.parseAndValidate trên file XLSX tổng hợp (mỗi căn hộ một dòng điện và một dòng nước).
+ * Repository được giả lập nên chỉ đo phần đọc Excel và kiểm tra dữ liệu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UsageImportBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    private int rows;
+
+    private UsageImportService service;
+    private MockMultipartFile file;
+
+    @Setup
+    public void setUp() throws IOException {
+        int apartmentCount = rows / 2;
+        List<Apartment> apartments = new ArrayList<>(apartmentCount);
+        List<UsageRecord> previousElec = new ArrayList<>(apartmentCount);
+        List<UsageRecord> previousWater = new ArrayList<>(apartmentCount);
+        for (int i = 0; i < apartmentCount; i++) {
+            Building building = Building.builder().id(UUID.randomUUID()).name("B" + (i % 20)).build();
+            Apartment apartment = Apartment.builder().id(UUID.randomUUID()).roomNumber(i).building(building).build();
+            apartments.add(apartment);
+            previousElec.add(previous(apartment, 1_000));
+            previousWater.add(previous(apartment, 200));
+        }
+
+        ApartmentRepository apartmentRepository = mock(ApartmentRepository.class);
+        UsageRecordRepository usageRecordRepository = mock(UsageRecordRepository.class);
+        when(apartmentRepository.findAll()).thenReturn(apartments);
+        when(usageRecordRepository.findByMonthAndYearAndServiceCode(anyInt(), anyInt(), eq(ServiceCode.ELECTRICITY))).thenReturn(previousElec);
+        when(usageRecordRepository.findByMonthAndYearAndServiceCode(anyInt(), anyInt(), eq(ServiceCode.WATER))).thenReturn(previousWater);
+        service = new UsageImportService(apartmentRepository, mock(ServiceTypeRepository.class), usageRecordRepository);
+
+        file = new MockMultipartFile("file", "usage.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", workbook(apartments));
+    }
+
+    @Benchmark
+    public List<UsageImportDTO> parseAndValidate() {
+        return service.parseAndValidate(file, 2, 2025);
+    }
+
+    private static UsageRecord previous(Apartment apartment, long newIndex) {
+        return UsageRecord.builder()
+                .apartment(apartment)
+                .oldIndex(BigDecimal.valueOf(newIndex - 100))
+                .newIndex(BigDecimal.valueOf(newIndex))
+                .quantity(BigDecimal.valueOf(100))
+                .build();
+    }
+
+    private static byte[] workbook(List<Apartment> apartments) throws IOException {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1_000);
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Usage");
+            Row header = sheet.createRow(0);
+            String[] titles = { "Room", "Building", "Service", "Old index", "New index" };
+            for (int c = 0; c < titles.length; c++) {
+                header.createCell(c).setCellValue(titles[c]);
+            }
+
+            int rowIndex = 1;
+            for (Apartment apartment : apartments) {
+                rowIndex = writeRow(sheet, rowIndex, apartment, "ELECTRICITY", 1_000, 1_000 + apartment.getRoomNumber() % 300);
+                rowIndex = writeRow(sheet, rowIndex, apartment, "WATER", 200, 200 + apartment.getRoomNumber() % 30);
+            }
+            workbook.write(out);
+            workbook.dispose();
+            return out.toByteArray();
+        }
+    }
+
+    private static int writeRow(Sheet sheet, int rowIndex, Apartment apartment, String service, long oldIndex, long newIndex) {
+        Row row = sheet.createRow(rowIndex);
+        row.createCell(0).setCellValue(apartment.getRoomNumber());
+        row.createCell(1).setCellValue(apartment.getBuilding().getName());
+        row.createCell(2).setCellValue(service);
+        row.createCell(3).setCellValue(oldIndex);
+        row.createCell(4).setCellValue(newIndex);
+        return rowIndex + 1;
+    }
+}
@@ -0,0 +1,134 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+
+/**
+ * Thời gian InvoiceBulkWriter ghi một lô hóa đơn (mỗi hóa đơn 1 dòng invoice + 5 dòng invoice_detail) vào PostgreSQL cục bộ.
+ * Ghi vào bảng TEMP cùng tên nên không đụng tới dữ liệu thật:
+ *   mvn -P jmh test-compile exec:exec -Djmh.args="InvoiceBulkWriter -jvmArgsAppend -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bluemoon"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InvoiceBulkWriterBenchmark {
+    private static final int DETAILS_PER_INVOICE = 5;
+    private static final String LINE_ITEMS = "[{\"description\":\"BAC_1 (1.806)\",\"quantity\":50,\"unitPrice\":1806.00,\"amount\":90300}]";
+
+    @Param({ "1000", "10000", "100000" })
+    private int invoices;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private InvoiceBulkWriter writer;
+    private List<Invoice> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("benchmark.jdbc.url");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("Set -Dbenchmark.jdbc.url (see class comment) to run this benchmark");
+        }
+
+        dataSource = new SingleConnectionDataSource(url,
+                System.getProperty("benchmark.jdbc.user", "postgres"),
+                System.getProperty("benchmark.jdbc.password", "postgres"),
+                true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        createTempTables();
+        // Chỉ đo phần INSERT, các bảng tổng hợp chỉ thêm vài câu upsert mỗi lần gọi
+        writer = new InvoiceBulkWriter(jdbcTemplate, mock(InvoiceAggregateStore.class), mock(RevenueRollupStore.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    // Hóa đơn mới (id chưa gán) cho mỗi lần đo, bảng được làm rỗng sau mỗi lần
+    @Setup(Level.Invocation)
+    public void prepareBatch() {
+        batch = buildInvoices(invoices);
+    }
+
+    @TearDown(Level.Invocation)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE invoice_detail, invoice");
+    }
+
+    @Benchmark
+    public int insert() {
+        return writer.insert(batch);
+    }
+
+    private void createTempTables() {
+        jdbcTemplate.execute("CREATE TEMP TABLE invoice (" +
+                "id uuid PRIMARY KEY, apartment_id uuid NOT NULL, month int NOT NULL, year int NOT NULL, " +
+                "total_amount numeric(20,2), status varchar(10) NOT NULL, paid_amount numeric(20,2), " +
+                "overdue_date timestamp, input_fingerprint varchar(64), created_date timestamp NOT NULL, last_modified_date timestamp)");
+        jdbcTemplate.execute("CREATE TEMP TABLE invoice_detail (" +
+                "id uuid PRIMARY KEY, invoice_id uuid NOT NULL REFERENCES invoice(id), service_type_id uuid NOT NULL, " +
+                "quantity numeric(10,2), unit_price numeric(20,2), amount numeric(20,2), usage_record_id uuid, " +
+                "reference_id uuid, description text, line_items jsonb)");
+    }
+
+    private static List<Invoice> buildInvoices(int count) {
+        ServiceType serviceType = ServiceType.builder().id(UUID.randomUUID()).build();
+        List<Invoice> invoices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Invoice invoice = Invoice.builder()
+                    .apartment(Apartment.builder().id(UUID.randomUUID()).build())
+                    .month(1)
+                    .year(2025)
+                    .totalAmount(BigDecimal.valueOf(451500))
+                    .status(InvoiceStatus.PENDING)
+                    .paidAmount(BigDecimal.ZERO)
+                    .build();
+            for (int d = 0; d < DETAILS_PER_INVOICE; d++) {
+                invoice.getDetails().add(InvoiceDetail.builder()
+                        .invoice(invoice)
+                        .serviceType(serviceType)
+                        .quantity(BigDecimal.valueOf(50))
+                        .unitPrice(BigDecimal.ZERO)
+                        .amount(BigDecimal.valueOf(90300))
+                        .description("New: 1250 - Old: 1200")
+                        .lineItems(LINE_ITEMS)
+                        .build());
+            }
+            invoices.add(invoice);
+        }
+        return invoices;
+    }
+}
@@ -0,0 +1,177 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.Building;
+import itep.software.bluemoon.entity.accounting.PriceTier;
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.entity.accounting.UsageRecord;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.enumeration.TierCode;
+import itep.software.bluemoon.enumeration.VehicleType;
+import itep.software.bluemoon.model.DTO.accounting.InvoiceLineItemDTO;
+
+/**
+ * Tính hóa đơn cho 1000 căn hộ (quản lý, gửi xe, điện/nước bậc thang) và riêng bước tuần tự hóa line item ra JSON
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvoiceCalculatorBenchmark {
+    private static final int APARTMENTS = 1000;
+    private static final BigDecimal UNIT_PRICE = new BigDecimal("1806.00");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LineItemEncoder lineItemEncoder = new LineItemEncoder(objectMapper);
+    private InvoiceCalculator calculator;
+    private BillingContext context;
+    private List<InvoiceLineItemDTO> lineItems;
+
+    @Setup
+    public void setUp() {
+        calculator = TestCalculators.invoiceCalculator();
+
+        Building building = Building.builder().id(UUID.randomUUID()).name("A").build();
+        List<ServiceType> serviceTypes = new ArrayList<>();
+        for (ServiceCode code : List.of(ServiceCode.MANAGEMENT, ServiceCode.PARKING, ServiceCode.ELECTRICITY, ServiceCode.WATER)) {
+            serviceTypes.add(ServiceType.builder().id(UUID.randomUUID()).code(code).build());
+        }
+
+        List<Apartment> apartments = new ArrayList<>();
+        Map<UUID, UsageRecord> elecMap = new HashMap<>();
+        Map<UUID, UsageRecord> waterMap = new HashMap<>();
+        List<Object[]> vehicleRows = new ArrayList<>();
+        for (int i = 0; i < APARTMENTS; i++) {
+            Apartment apartment = Apartment.builder()
+                    .id(UUID.randomUUID())
+                    .roomNumber(100 + i)
+                    .area(BigDecimal.valueOf(5_000 + i * 7L, 2))
+                    .building(building)
+                    .build();
+            apartments.add(apartment);
+            elecMap.put(apartment.getId(), usage(apartment, 1_000, 1_000 + (i * 37L) % 600));
+            waterMap.put(apartment.getId(), usage(apartment, 200, 200 + (i * 13L) % 40));
+            vehicleRows.add(new Object[] { apartment.getId(), VehicleType.MOTORBIKE, 2L });
+            if (i % 3 == 0) {
+                vehicleRows.add(new Object[] { apartment.getId(), VehicleType.CAR, 1L });
+            }
+        }
+
+        context = BillingContext.builder()
+                .month(1)
+                .year(2025)
+                .apartments(apartments)
+                .plan(calculator.plan(serviceTypes))
+                .tariffs(TariffSnapshot.of(List.of(
+                        flat(serviceTypes.get(0), "7000"),
+                        tiered(serviceTypes.get(1), new TierCode[] { TierCode.BIKE, TierCode.MOTO, TierCode.CAR }, new int[] { 0, 0, 0 }, new Integer[] { null, null, null }, "50000", "120000", "1200000"),
+                        tiered(serviceTypes.get(2), null, new int[] { 0, 50, 100, 200, 300, 400 }, new Integer[] { 50, 100, 200, 300, 400, null },
+                                "1806", "1866", "2167", "2729", "3050", "3151"),
+                        tiered(serviceTypes.get(3), null, new int[] { 0, 10, 20, 30 }, new Integer[] { 10, 20, 30, null },
+                                "5973", "7052", "8669", "15929"))))
+                .usage(Map.of(ServiceCode.ELECTRICITY, elecMap, ServiceCode.WATER, waterMap))
+                .vehicleCounts(VehicleCountTable.of(vehicleRows))
+                .extraFees(Map.of())
+                .fingerprints(Map.of())
+                .build();
+
+        lineItems = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            lineItems.add(InvoiceLineItemDTO.builder()
+                    .description("Tier " + (i + 1) + " (1.806)")
+                    .quantity(BigDecimal.valueOf(50))
+                    .unitPrice(new BigDecimal("1806.00"))
+                    .amount(BigDecimal.valueOf(90_300))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void buildInvoices(Blackhole blackhole) {
+        for (Apartment apartment : context.getApartments()) {
+            blackhole.consume(calculator.buildInvoice(apartment, context));
+        }
+    }
+
+    // Cách cũ: dựng List<InvoiceLineItemDTO> rồi writeValueAsString
+    @Benchmark
+    public String convertToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(lineItems);
+    }
+
+    // Cách hiện tại của InvoiceCalculator: ghi thẳng qua LineItemEncoder
+    @Benchmark
+    public String encodeLineItems() {
+        LineItemEncoder.Items items = lineItemEncoder.begin();
+        for (int i = 0; i < 6; i++) {
+            items.add("Tier " + (i + 1) + " (1.806)", 50, UNIT_PRICE, 90_300);
+        }
+        return items.toJson();
+    }
+
+    private static UsageRecord usage(Apartment apartment, long oldIndex, long newIndex) {
+        return UsageRecord.builder()
+                .apartment(apartment)
+                .oldIndex(BigDecimal.valueOf(oldIndex))
+                .newIndex(BigDecimal.valueOf(newIndex))
+                .quantity(BigDecimal.valueOf(newIndex - oldIndex))
+                .build();
+    }
+
+    private static ServicePrice flat(ServiceType type, String price) {
+        return ServicePrice.builder()
+                .id(UUID.randomUUID())
+                .serviceType(type)
+                .startDate(LocalDate.of(2024, 1, 1))
+                .isFlat(true)
+                .flatPrice(new BigDecimal(price))
+                .tiers(List.of())
+                .build();
+    }
+
+    private static ServicePrice tiered(ServiceType type, TierCode[] codes, int[] mins, Integer[] maxes, String... prices) {
+        List<PriceTier> tiers = new ArrayList<>();
+        for (int i = 0; i < prices.length; i++) {
+            tiers.add(PriceTier.builder()
+                    .code(codes != null ? codes[i] : null)
+                    .minUsage(mins[i])
+                    .maxUsage(maxes[i])
+                    .unitPrice(new BigDecimal(prices[i]))
+                    .build());
+        }
+        return ServicePrice.builder()
+                .id(UUID.randomUUID())
+                .serviceType(type)
+                .startDate(LocalDate.of(2024, 1, 1))
+                .isFlat(false)
+                .tiers(tiers)
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import itep.software.bluemoon.entity.accounting.PriceTier;
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.util.VndUtils;
+
+/**
+ * So sánh vòng lặp BigDecimal cũ với CompiledTariff trên 1024 chỉ số tiêu thụ ngẫu nhiên
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TieredTariffBenchmark {
+    @Param({ "3", "6" })
+    private int tierCount;
+
+    private TariffSnapshot.Tariff tariff;
+    private long[] quantities;
+    private BigDecimal[] bigQuantities;
+
+    @Setup
+    public void setUp() {
+        List<PriceTier> tiers = new ArrayList<>();
+        for (int i = 0; i < tierCount; i++) {
+            tiers.add(PriceTier.builder()
+                    .minUsage(i * 100)
+                    .maxUsage(i == tierCount - 1 ? null : (i + 1) * 100)
+                    .unitPrice(BigDecimal.valueOf(1806 + 250L * i))
+                    .build());
+        }
+        ServicePrice price = ServicePrice.builder()
+                .id(UUID.randomUUID())
+                .serviceType(ServiceType.builder().code(ServiceCode.ELECTRICITY).build())
+                .startDate(LocalDate.of(2024, 1, 1))
+                .isFlat(false)
+                .tiers(tiers)
+                .build();
+        tariff = TariffSnapshot.of(List.of(price)).require(ServiceCode.ELECTRICITY);
+
+        SplittableRandom random = new SplittableRandom(42);
+        quantities = new long[1024];
+        bigQuantities = new BigDecimal[quantities.length];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = random.nextLong(0, tierCount * 120L);
+            bigQuantities[i] = BigDecimal.valueOf(quantities[i]);
+        }
+    }
+
+    @Benchmark
+    public void bigDecimalLoop(Blackhole blackhole) {
+        for (BigDecimal quantity : bigQuantities) {
+            BigDecimal remaining = quantity;
+            BigDecimal total = BigDecimal.ZERO;
+            for (TariffSnapshot.Tier tier : tariff.getTiers()) {
+                if (remaining.compareTo(BigDecimal.ZERO) <= 0) break;
+                BigDecimal amountInTier = tier.getMaxUsage() != null
+                        ? remaining.min(BigDecimal.valueOf(tier.getMaxUsage()).subtract(BigDecimal.valueOf(tier.getMinUsage())))
+                        : remaining;
+                BigDecimal tierCost = VndUtils.multiply(amountInTier, tier.getUnitPrice());
+                total = VndUtils.add(total, tierCost);
+                blackhole.consume(tier.getCode() + " (" + VndUtils.format(tier.getUnitPrice()) + ")");
+                remaining = remaining.subtract(amountInTier);
+            }
+            blackhole.consume(total);
+        }
+    }
+
+    @Benchmark
+    public void compiledCost(Blackhole blackhole) {
+        CompiledTariff compiled = tariff.getCompiled();
+        for (long quantity : quantities) {
+            blackhole.consume(compiled.cost(quantity));
+        }
+    }
+
+    @Benchmark
+    public void compiledCostWithBreakdown(Blackhole blackhole) {
+        CompiledTariff compiled = tariff.getCompiled();
+        for (long quantity : quantities) {
+            blackhole.consume(compiled.cost(quantity));
+            blackhole.consume(compiled.breakdown(quantity));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package itep.software.bluemoon.util;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Phép nhân, cộng và định dạng tiền: VndUtils (BigDecimal) so với Vnd (long), 1024 cặp diện tích × đơn giá
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VndBenchmark {
+    private BigDecimal[] areas;
+    private BigDecimal[] prices;
+    private long[] amounts;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        areas = new BigDecimal[1024];
+        prices = new BigDecimal[areas.length];
+        amounts = new long[areas.length];
+        for (int i = 0; i < areas.length; i++) {
+            areas[i] = BigDecimal.valueOf(random.nextLong(3_000, 15_000), 2);
+            prices[i] = BigDecimal.valueOf(random.nextLong(500_000, 2_000_000), 2);
+            amounts[i] = random.nextLong(0, 50_000_000);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal vndUtilsMultiplyAndAdd() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < areas.length; i++) {
+            total = VndUtils.add(total, VndUtils.multiply(areas[i], prices[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Vnd vndProductAndPlus() {
+        Vnd total = Vnd.ZERO;
+        for (int i = 0; i < areas.length; i++) {
+            total = total.plus(Vnd.product(areas[i], prices[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void vndUtilsFormat(Blackhole blackhole) {
+        for (long amount : amounts) {
+            blackhole.consume(VndUtils.format(BigDecimal.valueOf(amount)));
+        }
+    }
+
+    @Benchmark
+    public void vndFormat(Blackhole blackhole) {
+        for (long amount : amounts) {
+            blackhole.consume(Vnd.format(amount));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package itep.software.bluemoon.controller;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
 
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
@@ -9,14 +10,29 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import itep.software.bluemoon.enumeration.GenerationMode;
 import itep.software.bluemoon.model.DTO.accounting.AccountingDashboardResponseDTO;
+import itep.software.bluemoon.model.DTO.accounting.InvoiceAggregateRebuildDTO;
+import itep.software.bluemoon.model.DTO.accounting.InvoiceDetailDTO;
+import itep.software.bluemoon.model.DTO.accounting.InvoicePublishResultDTO;
 import itep.software.bluemoon.model.DTO.accounting.MonthlyRevenueDTO;
 import itep.software.bluemoon.model.DTO.accounting.RevenueDistributionDTO;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryRequestDTO;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryResultDTO;
+import itep.software.bluemoon.model.DTO.accounting.generation.GenerationJobDTO;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceBackfillReportDTO;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationRequestDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationResultDTO;
+import itep.software.bluemoon.model.DTO.cache.ReadCacheStatsDTO;
 import itep.software.bluemoon.model.projection.InvoiceSummary;
 import itep.software.bluemoon.response.ApiResponse;
 import itep.software.bluemoon.service.AccountingService;
@@ -44,9 +60,23 @@ public class AccountingController {
         );
     }
 
+    // breakdown = true mới trả kèm line item (bậc thang, từng loại xe) của từng dòng
+    @GetMapping("/invoices/{invoiceId}/details")
+    public ResponseEntity<Object> getInvoiceDetails(@PathVariable UUID invoiceId,
+                                                    @RequestParam(value = "breakdown", required = false, defaultValue = "false") boolean breakdown){
+        List<InvoiceDetailDTO> data = invoiceService.getInvoiceDetails(invoiceId, breakdown);
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Get invoice details successfully!",
+                data
+        );
+    }
+
     @PostMapping("/invoices/generation")
-    public ResponseEntity<Object> generateInvoices(@RequestParam(value = "month", required = true) Integer month, @RequestParam(value = "year", required = true) Integer year){
-        List<InvoiceSummary> data = invoiceService.generateBatchInvoice(month, year);
+    public ResponseEntity<Object> generateInvoices(@RequestParam(value = "month", required = true) Integer month, @RequestParam(value = "year", required = true) Integer year,
+                                                   @RequestParam(value = "mode", required = false, defaultValue = "FULL") GenerationMode mode){
+        List<InvoiceSummary> data = invoiceService.generateBatchInvoice(month, year, mode);
 
         return ApiResponse.responseBuilder(
                 HttpStatus.OK,
@@ -55,6 +85,105 @@ public class AccountingController {
         );
     }
 
+    // Tạo hóa đơn cho nhiều tháng liên tiếp (ví dụ tòa nhà mới), các tháng chạy song song với bảng giá của từng tháng
+    @PostMapping("/invoices/generation/backfill")
+    public ResponseEntity<Object> backfillInvoices(@RequestParam(value = "fromMonth", required = true) Integer fromMonth, @RequestParam(value = "fromYear", required = true) Integer fromYear,
+                                                   @RequestParam(value = "toMonth", required = true) Integer toMonth, @RequestParam(value = "toYear", required = true) Integer toYear,
+                                                   @RequestParam(value = "mode", required = false, defaultValue = "FULL") GenerationMode mode){
+        InvoiceBackfillReportDTO data = invoiceService.backfillInvoices(fromMonth, fromYear, toMonth, toYear, mode);
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Backfill draft invoices (PENDING) successfully!",
+                data
+        );
+    }
+
+    // Duyệt (phát hành) toàn bộ hóa đơn PENDING của kỳ, buildingId để chỉ duyệt một tòa
+    @PostMapping("/invoices/approve-all")
+    public ResponseEntity<Object> approveAllInvoices(@RequestParam(value = "month", required = true) Integer month, @RequestParam(value = "year", required = true) Integer year,
+                                                     @RequestParam(value = "buildingId", required = false) UUID buildingId){
+        InvoicePublishResultDTO data = invoiceService.publishInvoices(month, year, buildingId);
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Approved " + data.getPublishedCount() + " invoices successfully!",
+                data
+        );
+    }
+
+    // Tạo hóa đơn chạy nền: trả về jobId ngay, front-end thăm dò tiến độ qua GET /invoices/generation/jobs/{jobId}
+    @PostMapping("/invoices/generation/jobs")
+    public ResponseEntity<Object> submitGenerationJob(@RequestParam(value = "month", required = true) Integer month, @RequestParam(value = "year", required = true) Integer year,
+                                                      @RequestParam(value = "mode", required = false, defaultValue = "FULL") GenerationMode mode){
+        GenerationJobDTO data = invoiceService.submitGenerationJob(month, year, mode);
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.ACCEPTED,
+                "Invoice generation job submitted!",
+                data
+        );
+    }
+
+    @GetMapping("/invoices/generation/jobs/{jobId}")
+    public ResponseEntity<Object> getGenerationJob(@PathVariable UUID jobId){
+        GenerationJobDTO data = invoiceService.getGenerationJob(jobId);
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Get invoice generation job successfully!",
+                data
+        );
+    }
+
+    //thời gian và lỗi của từng tòa nhà trong lần tạo hóa đơn gần nhất
+    @GetMapping("/invoices/generation/report")
+    public ResponseEntity<Object> getGenerationReport(@RequestParam(value = "month", required = true) Integer month, @RequestParam(value = "year", required = true) Integer year){
+        InvoiceGenerationReportDTO data = invoiceService.getGenerationReport(month, year);
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Get invoice generation report successfully!",
+                data
+        );
+    }
+
+    //mô phỏng doanh thu của bảng giá đề xuất trên các hóa đơn đã phát hành, không ghi gì xuống DB
+    @PostMapping("/tariffs/simulation")
+    public ResponseEntity<Object> simulateTariff(@RequestBody TariffSimulationRequestDTO request){
+        TariffSimulationResultDTO data = accountingService.simulateTariff(request);
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Simulate tariff successfully!",
+                data
+        );
+    }
+
+    //group-by và lọc tùy ý trên cube hóa đơn trong bộ nhớ
+    @PostMapping("/analytics/cube/query")
+    public ResponseEntity<Object> queryCube(@RequestBody CubeQueryRequestDTO request){
+        CubeQueryResultDTO data = accountingService.queryCube(request);
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Query accounting cube successfully!",
+                data
+        );
+    }
+
+    //nạp lại ngay các kỳ đã thay đổi thay vì chờ lịch làm mới
+    @PostMapping("/analytics/cube/refresh")
+    public ResponseEntity<Object> refreshCube(){
+        int data = accountingService.refreshCube();
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Refresh accounting cube successfully!",
+                data
+        );
+    }
+
     @SuppressWarnings("null")
     @GetMapping("/invoices/export")
     public ResponseEntity<InputStreamResource> exportInvoices(
@@ -71,6 +200,18 @@ public class AccountingController {
                 .body(file);
     }
 
+    //số lần trả từ cache, phải truy vấn DB và chờ chung truy vấn của yêu cầu khác, theo từng cache
+    @GetMapping("/caches")
+    public ResponseEntity<Object> getReadCacheStats() {
+        List<ReadCacheStatsDTO> data = accountingService.getReadCacheStats();
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Get read cache statistics successfully!",
+                data
+        );
+    }
+
     //dùng api này cho 4 chỉ số ở dashboard
     @GetMapping("/dashboard/fourmetrics")
     public ResponseEntity<Object> getDashboardData() {
@@ -84,6 +225,24 @@ public class AccountingController {
         );
     }
 
+    //tính lại bảng tổng hợp theo trạng thái từ bảng invoice, trả về giá trị trước/sau để đối chiếu
+    @PostMapping("/dashboard/aggregates/rebuild")
+    public ResponseEntity<Object> rebuildDashboardAggregates() {
+        InvoiceAggregateRebuildDTO data = accountingService.rebuildDashboardAggregates();
+
+        return ApiResponse.responseBuilder(
+                HttpStatus.OK,
+                "Rebuild dashboard aggregates successfully!",
+                data
+        );
+    }
+
+    //giữ một kết nối SSE thay cho việc gọi lại các api dashboard: sự kiện "dashboard" mang 4 chỉ số mới và các kỳ có doanh thu thay đổi
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDashboard() {
+        return accountingService.subscribeDashboard();
+    }
+
     //dùng api này cho bar chart ở dashboard
     @GetMapping("/dashboard/barchart")
     public ResponseEntity<Object> getRevenueChart(
@@ -5,8 +5,10 @@ import java.math.BigDecimal;
 import java.util.UUID;
 
 import itep.software.bluemoon.entity.person.Resident;
+import itep.software.bluemoon.service.cache.ReadCacheInvalidator;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -27,6 +29,7 @@ import lombok.Setter;
 @Builder
 @Entity
 @Table(name = "apartment")
+@EntityListeners(ReadCacheInvalidator.class)
 public class Apartment {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
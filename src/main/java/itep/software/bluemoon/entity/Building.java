@@ -4,9 +4,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import itep.software.bluemoon.service.cache.ReadCacheInvalidator;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -26,6 +28,7 @@ import lombok.Setter;
 @Builder
 @Entity
 @Table(name = "building")
+@EntityListeners(ReadCacheInvalidator.class)
 public class Building {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -86,4 +86,8 @@ public class Invoice extends BaseEntity {
 
     @Column(name = "overdue_date")
     private LocalDateTime overdueDate;
+
+    //dấu vân tay dữ liệu đầu vào lúc tạo hóa đơn, dùng cho chế độ tạo lại từng phần
+    @Column(name = "input_fingerprint", length = 64)
+    private String inputFingerprint;
 }
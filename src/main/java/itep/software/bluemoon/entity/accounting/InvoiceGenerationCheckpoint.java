@@ -0,0 +1,77 @@
+package itep.software.bluemoon.entity.accounting;
+
+import java.util.UUID;
+
+import itep.software.bluemoon.entity.BaseEntity;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//tiến độ của lần tạo hóa đơn theo lô, được ghi cùng transaction với mỗi lô để chạy tiếp khi lỗi;
+//lượt tạo theo tòa nhà chỉ ghi khi không thành công (không có con trỏ) để chặn phát hành
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "invoice_generation_checkpoint",
+       uniqueConstraints = {
+           @UniqueConstraint(
+               name = "uk_generation_checkpoint_month",
+               columnNames = {"month", "year"}
+           )
+       })
+public class InvoiceGenerationCheckpoint extends BaseEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(
+            name = "id",
+            updatable = false,
+            nullable = false,
+            columnDefinition = "UUID"
+    )
+    private UUID id;
+
+    @Column(name = "month", nullable = false)
+    private int month;
+
+    @Column(name = "year", nullable = false)
+    private int year;
+
+    //id căn hộ cuối cùng của lô đã commit (con trỏ keyset)
+    @Column(name = "last_apartment_id", columnDefinition = "UUID")
+    private UUID lastApartmentId;
+
+    @Column(name = "processed_count", nullable = false)
+    private int processedCount;
+
+    @Column(name = "invoice_count", nullable = false)
+    private int invoiceCount;
+
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+
+    //số căn hộ lỗi trong các lô đã commit, giữ qua các lần chạy tiếp để lần cuối không báo SUCCESS
+    @Column(name = "failed_count", nullable = false, columnDefinition = "integer default 0")
+    private int failedCount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 10)
+    private GenerationStatus status;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+}
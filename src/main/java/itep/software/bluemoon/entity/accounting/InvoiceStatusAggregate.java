@@ -0,0 +1,37 @@
+package itep.software.bluemoon.entity.accounting;
+
+import java.math.BigDecimal;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//số hóa đơn và tổng tiền theo trạng thái, được cộng dồn cùng transaction với mỗi lần ghi hóa đơn
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "invoice_status_aggregate")
+public class InvoiceStatusAggregate {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 10)
+    private InvoiceStatus status;
+
+    @Column(name = "invoice_count", nullable = false)
+    private long invoiceCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 20, scale = 2)
+    private BigDecimal totalAmount;
+}
@@ -4,8 +4,10 @@ import java.math.BigDecimal;
 import java.util.UUID;
 
 import itep.software.bluemoon.enumeration.TierCode;
+import itep.software.bluemoon.service.billing.TariffCacheInvalidator;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
@@ -27,6 +29,7 @@ import lombok.Setter;
 @AllArgsConstructor
 @Builder
 @Entity
+@EntityListeners(TariffCacheInvalidator.class)
 @Table(name = "price_tier")
 public class PriceTier {
     @Id
@@ -0,0 +1,64 @@
+package itep.software.bluemoon.entity.accounting;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import itep.software.bluemoon.enumeration.ServiceCode;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//doanh thu theo kỳ hóa đơn, tòa nhà và dịch vụ, được cộng dồn cùng transaction với mỗi lần ghi/xóa hóa đơn
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "revenue_rollup",
+       uniqueConstraints = {
+           @UniqueConstraint(
+               name = "uk_revenue_rollup_period_building_service",
+               columnNames = {"year", "month", "building_id", "service_code"}
+           )
+       })
+public class RevenueRollup {
+    @Id
+    @Column(
+            name = "id",
+            updatable = false,
+            nullable = false,
+            columnDefinition = "UUID"
+    )
+    private UUID id;
+
+    @Column(name = "year", nullable = false)
+    private int year;
+
+    @Column(name = "month", nullable = false)
+    private int month;
+
+    @Column(name = "building_id", nullable = false, columnDefinition = "UUID")
+    private UUID buildingId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "service_code", nullable = false, length = 20)
+    private ServiceCode serviceCode;
+
+    //tổng tiền chi tiết hóa đơn ở mọi trạng thái
+    @Column(name = "total_amount", nullable = false, precision = 20, scale = 2)
+    private BigDecimal totalAmount;
+
+    //phần thuộc hóa đơn đã thanh toán (PAID)
+    @Column(name = "paid_amount", nullable = false, precision = 20, scale = 2)
+    private BigDecimal paidAmount;
+}
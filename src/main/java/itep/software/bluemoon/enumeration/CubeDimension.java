@@ -0,0 +1,10 @@
+package itep.software.bluemoon.enumeration;
+
+public enum CubeDimension {
+    BUILDING,
+    FLOOR,
+    SERVICE,
+    STATUS,
+    MONTH,
+    YEAR,
+}
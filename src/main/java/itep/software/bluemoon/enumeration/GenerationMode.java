@@ -0,0 +1,7 @@
+package itep.software.bluemoon.enumeration;
+
+public enum GenerationMode {
+    FULL,
+    INCREMENTAL,
+    STREAMING
+}
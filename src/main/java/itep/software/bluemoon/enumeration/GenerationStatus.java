@@ -0,0 +1,8 @@
+package itep.software.bluemoon.enumeration;
+
+public enum GenerationStatus {
+    RUNNING,
+    SUCCESS,
+    PARTIAL,
+    FAILED
+}
@@ -0,0 +1,23 @@
+package itep.software.bluemoon.model.DTO.accounting;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardUpdateDTO {
+    private Long sequence; // tăng dần, client bỏ qua bản có sequence nhỏ hơn bản đã nhận
+    private LocalDateTime emittedAt;
+    private AccountingDashboardResponseDTO metrics; // 4 chỉ số sau thay đổi, giống /dashboard/fourmetrics
+    private Map<InvoiceStatus, AccountingDashboardResponseDTO.DashboardMetricDTO> statusDeltas; // thay đổi từ lần đẩy trước
+    private List<String> changedPeriods; // kỳ "yyyy-MM" có doanh thu thay đổi: tải lại barchart/piechart nếu đang xem kỳ đó
+}
@@ -0,0 +1,34 @@
+package itep.software.bluemoon.model.DTO.accounting;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceAggregateRebuildDTO {
+    private LocalDateTime rebuiltAt;
+    private Boolean driftDetected; // true: giá trị cộng dồn lệch so với tính lại
+    private List<StatusAggregateDTO> statuses;
+    private Integer revenueRollupRows; // số dòng (kỳ, tòa, dịch vụ) của bảng doanh thu sau khi dựng lại
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatusAggregateDTO {
+        private InvoiceStatus status;
+        private Long storedCount; // trước khi dựng lại
+        private BigDecimal storedAmount;
+        private Long invoiceCount; // tính lại từ bảng invoice
+        private BigDecimal totalAmount;
+    }
+}
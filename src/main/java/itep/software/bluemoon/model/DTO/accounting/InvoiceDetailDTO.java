@@ -0,0 +1,26 @@
+package itep.software.bluemoon.model.DTO.accounting;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import itep.software.bluemoon.enumeration.ServiceCode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceDetailDTO {
+    private UUID id;
+    private ServiceCode serviceCode;
+    private String serviceTitle;
+    private String description;
+    private BigDecimal quantity;
+    private BigDecimal unitPrice;
+    private BigDecimal amount;
+    private List<InvoiceLineItemDTO> lineItems; // null nếu không yêu cầu breakdown
+}
@@ -0,0 +1,24 @@
+package itep.software.bluemoon.model.DTO.accounting;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoicePublishResultDTO {
+    private Integer month;
+    private Integer year;
+    private UUID buildingId; // null: cả khu
+    private Integer publishedCount;
+    private LocalDateTime overdueDate;
+    private Map<InvoiceStatus, Long> statusCounts; // số hóa đơn theo trạng thái sau khi phát hành
+}
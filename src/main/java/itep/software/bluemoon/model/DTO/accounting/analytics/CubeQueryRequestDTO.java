@@ -0,0 +1,21 @@
+package itep.software.bluemoon.model.DTO.accounting.analytics;
+
+import java.util.List;
+import java.util.Map;
+
+import itep.software.bluemoon.enumeration.CubeDimension;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CubeQueryRequestDTO {
+    //thứ tự chiều cũng là thứ tự sắp xếp kết quả, rỗng: một dòng tổng
+    private List<CubeDimension> groupBy;
+    //giá trị được chấp nhận của từng chiều (OR trong một chiều, AND giữa các chiều); BUILDING nhận id hoặc tên tòa
+    private Map<CubeDimension, List<String>> filters;
+}
@@ -0,0 +1,37 @@
+package itep.software.bluemoon.model.DTO.accounting.analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import itep.software.bluemoon.enumeration.CubeDimension;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CubeQueryResultDTO {
+    private List<CubeDimension> groupBy;
+    private LocalDateTime refreshedAt; // lần làm mới cube gần nhất
+    private long scannedLines; // số dòng chi tiết hóa đơn đã duyệt
+    private long durationMicros;
+    private List<CubeRowDTO> rows;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CubeRowDTO {
+        private Map<CubeDimension, String> keys;
+        private BigDecimal amount;
+        private BigDecimal paidAmount;
+        private BigDecimal outstandingAmount;
+        private Double paidPercentage;
+        private long lineCount;
+    }
+}
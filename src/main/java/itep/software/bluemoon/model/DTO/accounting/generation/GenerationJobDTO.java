@@ -0,0 +1,33 @@
+package itep.software.bluemoon.model.DTO.accounting.generation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.model.projection.InvoiceSummary;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerationJobDTO {
+    private UUID jobId;
+    private int month;
+    private int year;
+    private GenerationMode mode;
+    private GenerationStatus status;
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+    private int totalApartments;
+    private int processedApartments;
+    private double apartmentsPerSecond;
+    private List<String> errors;
+    private InvoiceGenerationReportDTO report;
+    private List<InvoiceSummary> invoices;
+}
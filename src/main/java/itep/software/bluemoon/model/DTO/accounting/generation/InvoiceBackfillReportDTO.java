@@ -0,0 +1,29 @@
+package itep.software.bluemoon.model.DTO.accounting.generation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceBackfillReportDTO {
+    private int fromMonth;
+    private int fromYear;
+    private int toMonth;
+    private int toYear;
+    private GenerationMode mode;
+    private GenerationStatus status;
+    private LocalDateTime startedAt;
+    private long durationMs;
+    private int invoiceCount;
+    //kết quả từng tháng theo thứ tự thời gian
+    private List<GenerationJobDTO> months;
+}
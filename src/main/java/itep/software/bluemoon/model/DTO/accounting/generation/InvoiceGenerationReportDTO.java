@@ -0,0 +1,52 @@
+package itep.software.bluemoon.model.DTO.accounting.generation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceGenerationReportDTO {
+    private int month;
+    private int year;
+    private GenerationMode mode;
+    private GenerationStatus status;
+    private LocalDateTime startedAt;
+    private long durationMs;
+    private int apartmentCount;
+    private int invoiceCount;
+    private int failedApartmentCount;
+    private int addedCount;
+    private int changedCount;
+    private int unchangedCount;
+    private int removedCount;
+    private int chunkCount;
+    private boolean resumed;
+    private List<PartitionReportDTO> partitions;
+    private List<String> errors;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PartitionReportDTO {
+        private UUID buildingId;
+        private String buildingName;
+        private GenerationStatus status;
+        private int apartmentCount;
+        private int invoiceCount;
+        private long computeMs;
+        private long persistMs;
+        private long durationMs;
+        private List<String> errors;
+    }
+}
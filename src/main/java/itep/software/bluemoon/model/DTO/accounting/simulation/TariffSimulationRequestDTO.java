@@ -0,0 +1,46 @@
+package itep.software.bluemoon.model.DTO.accounting.simulation;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.enumeration.TierCode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TariffSimulationRequestDTO {
+    private Integer fromMonth;
+    private Integer fromYear;
+    private Integer toMonth;
+    private Integer toYear;
+    //bảng giá đề xuất, dịch vụ không có trong danh sách giữ bảng giá đã áp dụng của từng kỳ
+    private List<ProposedPriceDTO> prices;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProposedPriceDTO {
+        private ServiceCode serviceCode;
+        private boolean isFlat;
+        private BigDecimal flatPrice;
+        private List<ProposedTierDTO> tiers;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProposedTierDTO {
+        private TierCode code;
+        private int minUsage;
+        private Integer maxUsage;
+        private BigDecimal unitPrice;
+    }
+}
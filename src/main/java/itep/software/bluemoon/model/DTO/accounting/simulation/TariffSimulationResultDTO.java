@@ -0,0 +1,57 @@
+package itep.software.bluemoon.model.DTO.accounting.simulation;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import itep.software.bluemoon.enumeration.ServiceCode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TariffSimulationResultDTO {
+    private int fromMonth;
+    private int fromYear;
+    private int toMonth;
+    private int toYear;
+    private int monthCount;
+    private int invoiceCount;
+    private long durationMs;
+    private BigDecimal actualAmount;
+    private BigDecimal simulatedAmount;
+    private BigDecimal deltaAmount;
+    private List<ServiceDeltaDTO> services;
+    private List<BuildingDeltaDTO> buildings;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ServiceDeltaDTO {
+        private ServiceCode serviceCode;
+        private BigDecimal actualAmount;
+        //tính lại theo bảng giá đã áp dụng của kỳ; khác actualAmount nghĩa là dữ liệu đầu vào đã thay đổi sau khi phát hành
+        private BigDecimal baselineAmount;
+        private BigDecimal simulatedAmount;
+        private BigDecimal deltaAmount;
+        private Double deltaPercentage;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BuildingDeltaDTO {
+        private UUID buildingId;
+        private String buildingName;
+        private BigDecimal actualAmount;
+        private BigDecimal simulatedAmount;
+        private BigDecimal deltaAmount;
+        private List<ServiceDeltaDTO> services;
+    }
+}
@@ -0,0 +1,20 @@
+package itep.software.bluemoon.model.DTO.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadCacheStatsDTO {
+    private String name;
+    private Long ttlSeconds;
+    private Integer entries;
+    private Long hits; // trả từ cache
+    private Long misses; // phải truy vấn DB
+    private Long coalesced; // chờ chung lần truy vấn của yêu cầu khác
+    private Double savedPercentage;
+}
@@ -0,0 +1,16 @@
+package itep.software.bluemoon.model.projection;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import itep.software.bluemoon.enumeration.ServiceCode;
+
+public interface InvoiceDetailSummary {
+    UUID getId();
+    ServiceCode getServiceCode();
+    String getServiceTitle();
+    String getDescription();
+    BigDecimal getQuantity();
+    BigDecimal getUnitPrice();
+    BigDecimal getAmount();
+}
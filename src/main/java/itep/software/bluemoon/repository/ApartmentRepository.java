@@ -3,6 +3,7 @@ package itep.software.bluemoon.repository;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -43,6 +44,34 @@ public interface ApartmentRepository extends JpaRepository<Apartment, UUID> {
 
     @Query("SELECT DISTINCT r.apartment FROM Resident r")
     List<Apartment> findApartmentsWithResidents();
+
+    // Căn hộ có cư dân, lấy kèm tòa nhà và chủ hộ để dùng được ngoài transaction khi tạo hóa đơn
+    @Query("SELECT a FROM Apartment a " +
+           "JOIN FETCH a.building " +
+           "LEFT JOIN FETCH a.owner " +
+           "WHERE EXISTS (SELECT r.id FROM Resident r WHERE r.apartment = a)")
+    List<Apartment> findBillableApartments();
+
+    // Tổng số căn hộ cần tính tiền, dùng để báo tiến độ khi tạo theo lô
+    @Query("SELECT COUNT(a) FROM Apartment a " +
+           "WHERE EXISTS (SELECT r.id FROM Resident r WHERE r.apartment = a)")
+    long countBillableApartments();
+
+    // Phân trang keyset theo id cho chế độ tạo hóa đơn theo lô
+    @Query("SELECT a FROM Apartment a " +
+           "JOIN FETCH a.building " +
+           "LEFT JOIN FETCH a.owner " +
+           "WHERE EXISTS (SELECT r.id FROM Resident r WHERE r.apartment = a) " +
+           "ORDER BY a.id")
+    List<Apartment> findBillableApartments(Limit limit);
+
+    @Query("SELECT a FROM Apartment a " +
+           "JOIN FETCH a.building " +
+           "LEFT JOIN FETCH a.owner " +
+           "WHERE EXISTS (SELECT r.id FROM Resident r WHERE r.apartment = a) " +
+           "AND a.id > :after " +
+           "ORDER BY a.id")
+    List<Apartment> findBillableApartmentsAfter(@Param("after") UUID after, Limit limit);
     
     List<Apartment> findByBuildingId(UUID buildingId);
     List<Apartment> findByBuildingIdAndFloor(UUID buildingId, Integer floor);
@@ -1,5 +1,6 @@
 package itep.software.bluemoon.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -10,6 +11,8 @@ import org.springframework.data.repository.query.Param;
 
 import itep.software.bluemoon.entity.Apartment;
 import itep.software.bluemoon.entity.accounting.ExtraFee;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
 import itep.software.bluemoon.model.projection.ExtraFeeSummary;
 
 public interface ExtraFeeRepository extends JpaRepository<ExtraFee, UUID> {
@@ -31,7 +34,32 @@ public interface ExtraFeeRepository extends JpaRepository<ExtraFee, UUID> {
 
     List<ExtraFee> findByApartmentAndIsBilledFalse(Apartment apartment);
 
+    // Toàn bộ phí chưa tính tiền của các căn hộ có cư dân, nạp một lần cho mỗi lần tạo hóa đơn
+    @Query("SELECT e FROM ExtraFee e " +
+        "WHERE e.isBilled = false " +
+        "AND EXISTS (SELECT r.id FROM Resident r WHERE r.apartment = e.apartment)")
+    List<ExtraFee> findUnbilledForBillableApartments();
+
+    @Query("SELECT e FROM ExtraFee e " +
+        "WHERE e.isBilled = false " +
+        "AND e.apartment.id IN :apartmentIds")
+    List<ExtraFee> findUnbilledByApartmentIds(@Param("apartmentIds") Collection<UUID> apartmentIds);
+
     @Modifying
     @Query("UPDATE ExtraFee e SET e.isBilled = :status WHERE e.id IN :ids")
     void updateStatusByIds(@Param("status") boolean status, @Param("ids") List<UUID> ids);
+
+    // Trả lại trạng thái chưa tính tiền cho các phí nằm trong hóa đơn của kỳ
+    @Modifying
+    @Query("UPDATE ExtraFee e SET e.isBilled = false " +
+        "WHERE e.id IN (" +
+        "    SELECT d.referenceId FROM InvoiceDetail d " +
+        "    JOIN d.invoice i " +
+        "    JOIN d.serviceType s " +
+        "    WHERE i.month = :month " +
+        "    AND i.year = :year " +
+        "    AND i.status = :status " +
+        "    AND s.code = :code)")
+    int releaseByInvoicePeriod(@Param("month") int month, @Param("year") int year,
+                               @Param("status") InvoiceStatus status, @Param("code") ServiceCode code);
 }
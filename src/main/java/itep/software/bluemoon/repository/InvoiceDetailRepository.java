@@ -1,11 +1,114 @@
 package itep.software.bluemoon.repository;
 
 import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.projection.InvoiceDetailSummary;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface InvoiceDetailRepository extends JpaRepository<InvoiceDetail, UUID> {
+    // Không select cột jsonb lineItems: danh sách chi tiết hóa đơn chỉ cần các cột tổng
+    @Query("SELECT d.id AS id, " +
+           "s.code AS serviceCode, " +
+           "s.title AS serviceTitle, " +
+           "d.description AS description, " +
+           "d.quantity AS quantity, " +
+           "d.unitPrice AS unitPrice, " +
+           "d.amount AS amount " +
+           "FROM InvoiceDetail d " +
+           "JOIN d.serviceType s " +
+           "WHERE d.invoice.id = :invoiceId " +
+           "ORDER BY s.code")
+    List<InvoiceDetailSummary> findSummariesByInvoiceId(@Param("invoiceId") UUID invoiceId);
+
+    // [id chi tiết, lineItems] - chỉ đọc khi client yêu cầu breakdown
+    @Query("SELECT d.id, d.lineItems " +
+           "FROM InvoiceDetail d " +
+           "WHERE d.invoice.id = :invoiceId")
+    List<Object[]> findLineItemsByInvoiceId(@Param("invoiceId") UUID invoiceId);
+
+    // [id căn hộ, referenceId] của các dòng chi tiết thuộc dịch vụ :code trong kỳ
+    @Query("SELECT i.apartment.id, d.referenceId " +
+           "FROM InvoiceDetail d " +
+           "JOIN d.invoice i " +
+           "JOIN d.serviceType s " +
+           "WHERE i.month = :month " +
+           "AND i.year = :year " +
+           "AND i.status = :status " +
+           "AND s.code = :code " +
+           "AND d.referenceId IS NOT NULL")
+    List<Object[]> findReferenceIdsByPeriod(@Param("month") int month, @Param("year") int year,
+                                            @Param("status") InvoiceStatus status, @Param("code") ServiceCode code);
+
+    // [năm, tháng, id căn hộ, diện tích, id tòa, tên tòa, mã dịch vụ, tổng tiền] của hóa đơn đã phát hành trong khoảng kỳ
+    // (kỳ tính bằng năm * 12 + tháng)
+    @Query("SELECT i.year, i.month, a.id, a.area, b.id, b.name, s.code, SUM(d.amount) " +
+           "FROM InvoiceDetail d " +
+           "JOIN d.invoice i " +
+           "JOIN i.apartment a " +
+           "JOIN a.building b " +
+           "JOIN d.serviceType s " +
+           "WHERE (i.year * 12 + i.month) BETWEEN :fromPeriod AND :toPeriod " +
+           "AND i.status <> :excludedStatus " +
+           "GROUP BY i.year, i.month, a.id, a.area, b.id, b.name, s.code")
+    List<Object[]> sumAmountByApartmentAndService(@Param("fromPeriod") int fromPeriod, @Param("toPeriod") int toPeriod,
+                                                  @Param("excludedStatus") InvoiceStatus excludedStatus);
+
+    // [năm, tháng, id tòa, mã dịch vụ, tổng tiền, phần đã thanh toán] của các hóa đơn trong kỳ ở một trạng thái
+    @Query("SELECT i.year, i.month, a.building.id, s.code, SUM(d.amount), " +
+           "SUM(CASE WHEN i.status = 'PAID' THEN d.amount ELSE 0 END) " +
+           "FROM InvoiceDetail d " +
+           "JOIN d.invoice i " +
+           "JOIN i.apartment a " +
+           "JOIN d.serviceType s " +
+           "WHERE i.month = :month " +
+           "AND i.year = :year " +
+           "AND i.status = :status " +
+           "GROUP BY i.year, i.month, a.building.id, s.code")
+    List<Object[]> sumRevenueByInvoicePeriod(@Param("month") int month, @Param("year") int year, @Param("status") InvoiceStatus status);
+
+    // Cùng cột như sumRevenueByInvoicePeriod, cho các hóa đơn chỉ định
+    @Query("SELECT i.year, i.month, a.building.id, s.code, SUM(d.amount), " +
+           "SUM(CASE WHEN i.status = 'PAID' THEN d.amount ELSE 0 END) " +
+           "FROM InvoiceDetail d " +
+           "JOIN d.invoice i " +
+           "JOIN i.apartment a " +
+           "JOIN d.serviceType s " +
+           "WHERE i.id IN :invoiceIds " +
+           "GROUP BY i.year, i.month, a.building.id, s.code")
+    List<Object[]> sumRevenueByInvoiceIds(@Param("invoiceIds") List<UUID> invoiceIds);
+
+    // [id tòa, tên tòa, tầng, mã dịch vụ, trạng thái, tiền chi tiết, tổng tiền hóa đơn, đã thanh toán của hóa đơn] của kỳ,
+    // dữ liệu nạp vào cube phân tích
+    @Query("SELECT b.id, b.name, a.floor, s.code, i.status, d.amount, i.totalAmount, i.paidAmount " +
+           "FROM InvoiceDetail d " +
+           "JOIN d.invoice i " +
+           "JOIN i.apartment a " +
+           "JOIN a.building b " +
+           "JOIN d.serviceType s " +
+           "WHERE i.month = :month " +
+           "AND i.year = :year")
+    List<Object[]> findCubeFactsByPeriod(@Param("month") int month, @Param("year") int year);
+
+    @Modifying
+    @Query("DELETE FROM InvoiceDetail d " +
+           "WHERE d.invoice.id IN (" +
+           "    SELECT i.id FROM Invoice i " +
+           "    WHERE i.month = :month " +
+           "    AND i.year = :year " +
+           "    AND i.status = :status)")
+    int deleteByInvoicePeriod(@Param("month") int month, @Param("year") int year, @Param("status") InvoiceStatus status);
+
+    @Modifying
+    @Query("DELETE FROM InvoiceDetail d WHERE d.invoice.id IN :invoiceIds")
+    int deleteByInvoiceIds(@Param("invoiceIds") List<UUID> invoiceIds);
 }
@@ -0,0 +1,21 @@
+package itep.software.bluemoon.repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import itep.software.bluemoon.entity.accounting.InvoiceGenerationCheckpoint;
+
+@Repository
+public interface InvoiceGenerationCheckpointRepository extends JpaRepository<InvoiceGenerationCheckpoint, UUID> {
+    Optional<InvoiceGenerationCheckpoint> findByMonthAndYear(int month, int year);
+
+    @Modifying
+    @Query("DELETE FROM InvoiceGenerationCheckpoint c WHERE c.month = :month AND c.year = :year")
+    int deleteByPeriod(@Param("month") int month, @Param("year") int year);
+}
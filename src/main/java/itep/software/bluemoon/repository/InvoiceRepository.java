@@ -1,10 +1,11 @@
 package itep.software.bluemoon.repository;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -36,29 +37,98 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
 
     List<Invoice> findByMonthAndYearAndStatus(int month, int year, InvoiceStatus status);
 
-    List<Invoice> findByMonthAndYear(int month, int year);
+    // [id hóa đơn, id căn hộ, dấu vân tay] của các hóa đơn trong kỳ
+    @Query("SELECT i.id, i.apartment.id, i.inputFingerprint " +
+           "FROM Invoice i " +
+           "WHERE i.month = :month " +
+           "AND i.year = :year " +
+           "AND i.status = :status")
+    List<Object[]> findFingerprintsByMonthAndYearAndStatus(@Param("month") int month, @Param("year") int year, @Param("status") InvoiceStatus status);
+
+    @Modifying
+    @Query("DELETE FROM Invoice i WHERE i.month = :month AND i.year = :year AND i.status = :status")
+    int deleteByPeriod(@Param("month") int month, @Param("year") int year, @Param("status") InvoiceStatus status);
+
+    @Modifying
+    @Query("DELETE FROM Invoice i WHERE i.id IN :ids")
+    int deleteByIds(@Param("ids") List<UUID> ids);
+
+    // Phát hành cả kỳ: một câu UPDATE, không nạp entity (lastModifiedDate phải tự gán vì auditing không chạy)
+    @Modifying
+    @Query("UPDATE Invoice i " +
+           "SET i.status = :to, i.overdueDate = :overdueDate, i.lastModifiedDate = :now " +
+           "WHERE i.month = :month " +
+           "AND i.year = :year " +
+           "AND i.status = :from")
+    int updateStatusByPeriod(@Param("month") int month, @Param("year") int year,
+                             @Param("from") InvoiceStatus from, @Param("to") InvoiceStatus to,
+                             @Param("overdueDate") LocalDateTime overdueDate, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Invoice i " +
+           "SET i.status = :to, i.overdueDate = :overdueDate, i.lastModifiedDate = :now " +
+           "WHERE i.month = :month " +
+           "AND i.year = :year " +
+           "AND i.status = :from " +
+           "AND i.apartment.id IN (SELECT a.id FROM Apartment a WHERE a.building.id = :buildingId)")
+    int updateStatusByPeriodAndBuilding(@Param("month") int month, @Param("year") int year, @Param("buildingId") UUID buildingId,
+                                        @Param("from") InvoiceStatus from, @Param("to") InvoiceStatus to,
+                                        @Param("overdueDate") LocalDateTime overdueDate, @Param("now") LocalDateTime now);
 
-    long countByStatus(InvoiceStatus status);
+    // Chuyển tối đa :batchSize hóa đơn quá hạn sang :to; SKIP LOCKED để không chờ hóa đơn đang được thanh toán.
+    // Trả về [trạng thái cũ, số hóa đơn, tổng tiền] của đúng các dòng vừa chuyển để cộng dồn vào bảng tổng hợp
+    @Query(value = "WITH picked AS (" +
+                   "    SELECT id, status, total_amount FROM invoice " +
+                   "    WHERE status IN (:fromStatuses) " +
+                   "    AND overdue_date < :now " +
+                   "    LIMIT :batchSize " +
+                   "    FOR UPDATE SKIP LOCKED), " +
+                   "moved AS (" +
+                   "    UPDATE invoice i SET status = :to, last_modified_date = :now " +
+                   "    FROM picked p WHERE i.id = p.id " +
+                   "    RETURNING p.status, p.total_amount) " +
+                   "SELECT status, COUNT(*), COALESCE(SUM(total_amount), 0) FROM moved GROUP BY status",
+           nativeQuery = true)
+    List<Object[]> markOverdueBatch(@Param("fromStatuses") List<String> fromStatuses, @Param("to") String to,
+                                    @Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
 
-    @Query("SELECT COALESCE(SUM(i.totalAmount), 0) FROM Invoice i WHERE i.status = :status")
-    BigDecimal sumTotalAmountByStatus(@Param("status") InvoiceStatus status);
+    // [số hóa đơn, tổng tiền] của kỳ ở một trạng thái, buildingId = null là cả khu
+    @Query("SELECT COUNT(i), COALESCE(SUM(i.totalAmount), 0) " +
+           "FROM Invoice i " +
+           "WHERE i.month = :month " +
+           "AND i.year = :year " +
+           "AND i.status = :status " +
+           "AND (:buildingId IS NULL OR i.apartment.building.id = :buildingId)")
+    List<Object[]> sumByPeriodAndStatus(@Param("month") int month, @Param("year") int year,
+                                        @Param("buildingId") UUID buildingId, @Param("status") InvoiceStatus status);
 
-    @Query("SELECT " +
-        "   EXTRACT(MONTH FROM i.createdDate) as month, " +
-        "   SUM(i.totalAmount) as totalRevenue, " +
-        "   SUM(CASE WHEN i.status = 'PAID' THEN i.totalAmount ELSE 0 END) as paidRevenue " +
-        "FROM Invoice i " +
-        "WHERE EXTRACT(YEAR FROM i.createdDate) = :year " +
-        "GROUP BY EXTRACT(MONTH FROM i.createdDate)")
-    List<Object[]> findMonthlyRevenueByYear(@Param("year") int year);
+    // [trạng thái, số hóa đơn, tổng tiền] của các hóa đơn chỉ định
+    @Query("SELECT i.status, COUNT(i), COALESCE(SUM(i.totalAmount), 0) " +
+           "FROM Invoice i " +
+           "WHERE i.id IN :ids " +
+           "GROUP BY i.status")
+    List<Object[]> sumByIdsGroupByStatus(@Param("ids") List<UUID> ids);
 
-    @Query("SELECT st.code, SUM(d.amount) " +
+    // [trạng thái, số hóa đơn] của kỳ, buildingId = null là cả khu
+    @Query("SELECT i.status, COUNT(i) " +
            "FROM Invoice i " +
-           "JOIN i.details d " +
-           "JOIN d.serviceType st " +
            "WHERE i.month = :month " +
            "AND i.year = :year " +
-           "AND i.status = 'PAID' " +
-           "GROUP BY st.code")
-    List<Object[]> findRevenueDistribution(@Param("month") int month, @Param("year") int year);
+           "AND (:buildingId IS NULL OR i.apartment.building.id = :buildingId) " +
+           "GROUP BY i.status")
+    List<Object[]> countByStatusForPeriod(@Param("month") int month, @Param("year") int year, @Param("buildingId") UUID buildingId);
+
+    List<Invoice> findByMonthAndYear(int month, int year);
+
+    // [trạng thái, số hóa đơn, tổng tiền] trên toàn bảng, chỉ dùng khi dựng lại bảng tổng hợp
+    @Query("SELECT i.status, COUNT(i), COALESCE(SUM(i.totalAmount), 0) " +
+           "FROM Invoice i " +
+           "GROUP BY i.status")
+    List<Object[]> sumByStatus();
+
+    // [năm, tháng, số hóa đơn, lần sửa cuối, tổng tiền, đã thanh toán] của từng kỳ: cube phân tích so sánh để biết kỳ nào cần nạp lại
+    @Query("SELECT i.year, i.month, COUNT(i), MAX(i.lastModifiedDate), COALESCE(SUM(i.totalAmount), 0), COALESCE(SUM(i.paidAmount), 0) " +
+           "FROM Invoice i " +
+           "GROUP BY i.year, i.month")
+    List<Object[]> findPeriodVersions();
 }
@@ -0,0 +1,40 @@
+package itep.software.bluemoon.repository;
+
+import java.math.BigDecimal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import itep.software.bluemoon.entity.accounting.InvoiceStatusAggregate;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+
+@Repository
+public interface InvoiceStatusAggregateRepository extends JpaRepository<InvoiceStatusAggregate, InvoiceStatus> {
+    // Cộng dồn (số âm để trừ); tạo dòng nếu trạng thái chưa có
+    @Modifying
+    @Query(value = "INSERT INTO invoice_status_aggregate (status, invoice_count, total_amount) " +
+                   "VALUES (:status, :count, :amount) " +
+                   "ON CONFLICT (status) DO UPDATE SET " +
+                   "invoice_count = invoice_status_aggregate.invoice_count + EXCLUDED.invoice_count, " +
+                   "total_amount = invoice_status_aggregate.total_amount + EXCLUDED.total_amount",
+           nativeQuery = true)
+    int addDelta(@Param("status") String status, @Param("count") long count, @Param("amount") BigDecimal amount);
+
+    // Ghi đè bằng giá trị tính lại từ bảng invoice
+    @Modifying
+    @Query(value = "INSERT INTO invoice_status_aggregate (status, invoice_count, total_amount) " +
+                   "VALUES (:status, :count, :amount) " +
+                   "ON CONFLICT (status) DO UPDATE SET " +
+                   "invoice_count = EXCLUDED.invoice_count, " +
+                   "total_amount = EXCLUDED.total_amount",
+           nativeQuery = true)
+    int replace(@Param("status") String status, @Param("count") long count, @Param("amount") BigDecimal amount);
+
+    // Xung đột với ROW EXCLUSIVE của addDelta: chờ các transaction đang cộng dồn commit xong và chặn lượt mới tới hết transaction
+    @Modifying
+    @Query(value = "LOCK TABLE invoice_status_aggregate IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+}
@@ -0,0 +1,66 @@
+package itep.software.bluemoon.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import itep.software.bluemoon.entity.accounting.RevenueRollup;
+
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, UUID> {
+    // Cộng dồn (số âm để trừ); tạo dòng nếu (kỳ, tòa, dịch vụ) chưa có
+    @Modifying
+    @Query(value = "INSERT INTO revenue_rollup (id, year, month, building_id, service_code, total_amount, paid_amount) " +
+                   "VALUES (:id, :year, :month, :buildingId, :serviceCode, :totalAmount, :paidAmount) " +
+                   "ON CONFLICT (year, month, building_id, service_code) DO UPDATE SET " +
+                   "total_amount = revenue_rollup.total_amount + EXCLUDED.total_amount, " +
+                   "paid_amount = revenue_rollup.paid_amount + EXCLUDED.paid_amount",
+           nativeQuery = true)
+    int addDelta(@Param("id") UUID id, @Param("year") int year, @Param("month") int month,
+                 @Param("buildingId") UUID buildingId, @Param("serviceCode") String serviceCode,
+                 @Param("totalAmount") BigDecimal totalAmount, @Param("paidAmount") BigDecimal paidAmount);
+
+    // [tháng, tổng tiền, đã thanh toán] của năm theo kỳ hóa đơn
+    @Query("SELECT r.month, SUM(r.totalAmount), SUM(r.paidAmount) " +
+           "FROM RevenueRollup r " +
+           "WHERE r.year = :year " +
+           "GROUP BY r.month")
+    List<Object[]> sumByMonth(@Param("year") int year);
+
+    // [mã dịch vụ, đã thanh toán] của kỳ, bỏ dịch vụ chưa có khoản nào được thanh toán
+    @Query("SELECT r.serviceCode, SUM(r.paidAmount) " +
+           "FROM RevenueRollup r " +
+           "WHERE r.month = :month " +
+           "AND r.year = :year " +
+           "GROUP BY r.serviceCode " +
+           "HAVING SUM(r.paidAmount) <> 0")
+    List<Object[]> sumPaidByService(@Param("month") int month, @Param("year") int year);
+
+    @Modifying
+    @Query(value = "LOCK TABLE revenue_rollup IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query(value = "DELETE FROM revenue_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    // Tính lại toàn bộ từ chi tiết hóa đơn
+    @Modifying
+    @Query(value = "INSERT INTO revenue_rollup (id, year, month, building_id, service_code, total_amount, paid_amount) " +
+                   "SELECT gen_random_uuid(), i.year, i.month, a.building_id, st.type, " +
+                   "       COALESCE(SUM(d.amount), 0), " +
+                   "       COALESCE(SUM(CASE WHEN i.status = 'PAID' THEN d.amount ELSE 0 END), 0) " +
+                   "FROM invoice_detail d " +
+                   "JOIN invoice i ON i.id = d.invoice_id " +
+                   "JOIN apartment a ON a.id = i.apartment_id " +
+                   "JOIN service_type st ON st.id = d.service_type_id " +
+                   "GROUP BY i.year, i.month, a.building_id, st.type",
+           nativeQuery = true)
+    int insertFromInvoices();
+}
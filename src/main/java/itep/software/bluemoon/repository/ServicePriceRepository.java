@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,4 +21,12 @@ public interface ServicePriceRepository extends JpaRepository<ServicePrice, UUID
            "AND p.startDate <= :date " +
            "AND (p.endDate IS NULL OR p.endDate >= :date)")
     Optional<ServicePrice> findActivePriceByCode(@Param("code") ServiceCode code, @Param("date") LocalDate date);
+
+    // Mọi bảng giá có hiệu lực tại một thời điểm bất kỳ trong [from, to], dùng khi nạp bảng giá theo kỳ tính tiền
+    @Query("SELECT DISTINCT p FROM ServicePrice p " +
+           "JOIN FETCH p.serviceType s " +
+           "LEFT JOIN FETCH p.tiers " +
+           "WHERE p.startDate <= :to " +
+           "AND (p.endDate IS NULL OR p.endDate >= :from)")
+    List<ServicePrice> findAllPricesBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
 }
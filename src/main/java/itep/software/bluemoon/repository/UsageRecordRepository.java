@@ -1,5 +1,6 @@
 package itep.software.bluemoon.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -34,14 +35,39 @@ public interface UsageRecordRepository extends JpaRepository<UsageRecord, UUID>{
             int year
     );
 
-    @Query("SELECT u FROM UsageRecord u " +
+    // [mã dịch vụ, UsageRecord] của mọi dịch vụ công tơ trong kỳ, một câu truy vấn cho cả lượt tạo hóa đơn
+    @Query("SELECT s.code, u FROM UsageRecord u " +
        "JOIN u.serviceType s " +        // Chỉ JOIN để lọc, không có chữ FETCH
-       "WHERE s.code = :code " +
+       "WHERE s.code IN :codes " +
        "AND u.month = :month " +
        "AND u.year = :year")
-    List<UsageRecord> findAllByServiceCodeAndMonthAndYear(
-        @Param("code") ServiceCode code,
+    List<Object[]> findAllByServiceCodesAndMonthAndYear(
+        @Param("codes") Collection<ServiceCode> codes,
         @Param("month") int month,
         @Param("year") int year
     );
+
+    // [năm, tháng, id căn hộ, mã dịch vụ, chỉ số tiêu thụ] trong khoảng kỳ, không nạp entity
+    @Query("SELECT u.year, u.month, u.apartment.id, s.code, u.quantity " +
+       "FROM UsageRecord u " +
+       "JOIN u.serviceType s " +
+       "WHERE (u.year * 12 + u.month) BETWEEN :fromPeriod AND :toPeriod")
+    List<Object[]> findQuantitiesByPeriodRange(
+        @Param("fromPeriod") int fromPeriod,
+        @Param("toPeriod") int toPeriod
+    );
+
+    // [mã dịch vụ, UsageRecord] trong kỳ của một lô căn hộ
+    @Query("SELECT s.code, u FROM UsageRecord u " +
+       "JOIN u.serviceType s " +
+       "WHERE s.code IN :codes " +
+       "AND u.month = :month " +
+       "AND u.year = :year " +
+       "AND u.apartment.id IN :apartmentIds")
+    List<Object[]> findAllByServiceCodesAndMonthAndYearAndApartmentIds(
+        @Param("codes") Collection<ServiceCode> codes,
+        @Param("month") int month,
+        @Param("year") int year,
+        @Param("apartmentIds") Collection<UUID> apartmentIds
+    );
 }
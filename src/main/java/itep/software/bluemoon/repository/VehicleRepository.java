@@ -1,9 +1,12 @@
 package itep.software.bluemoon.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import itep.software.bluemoon.entity.Vehicle;
@@ -13,4 +16,20 @@ public interface VehicleRepository extends JpaRepository<Vehicle, UUID> {
     List<Vehicle> findByOwner_Apartment_Id(UUID apartmentId);
 
     int countByOwner_Apartment_Id(UUID apartmentId);
+
+    // Đếm xe theo (căn hộ, loại xe) cho toàn bộ khu, dùng khi tạo hóa đơn
+    @Query("SELECT a.id, v.type, COUNT(v) " +
+           "FROM Vehicle v " +
+           "JOIN v.owner o " +
+           "JOIN o.apartment a " +
+           "GROUP BY a.id, v.type")
+    List<Object[]> countByApartmentAndType();
+
+    @Query("SELECT a.id, v.type, COUNT(v) " +
+           "FROM Vehicle v " +
+           "JOIN v.owner o " +
+           "JOIN o.apartment a " +
+           "WHERE a.id IN :apartmentIds " +
+           "GROUP BY a.id, v.type")
+    List<Object[]> countByApartmentAndType(@Param("apartmentIds") Collection<UUID> apartmentIds);
 }
@@ -1,20 +1,32 @@
 package itep.software.bluemoon.service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import itep.software.bluemoon.enumeration.InvoiceStatus;
 import itep.software.bluemoon.enumeration.ServiceCode;
 import itep.software.bluemoon.model.DTO.accounting.AccountingDashboardResponseDTO;
+import itep.software.bluemoon.model.DTO.accounting.InvoiceAggregateRebuildDTO;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryRequestDTO;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryResultDTO;
 import itep.software.bluemoon.model.DTO.accounting.MonthlyRevenueDTO;
 import itep.software.bluemoon.model.DTO.accounting.RevenueDistributionDTO;
-import itep.software.bluemoon.repository.InvoiceRepository;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationRequestDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationResultDTO;
+import itep.software.bluemoon.model.DTO.cache.ReadCacheStatsDTO;
+import itep.software.bluemoon.repository.RevenueRollupRepository;
+import itep.software.bluemoon.service.analytics.DashboardStream;
+import itep.software.bluemoon.service.analytics.InvoiceCube;
+import itep.software.bluemoon.service.billing.InvoiceAggregateStore;
+import itep.software.bluemoon.service.billing.RevenueRollupStore;
+import itep.software.bluemoon.service.billing.TariffSimulator;
+import itep.software.bluemoon.service.cache.ReadCaches;
+import itep.software.bluemoon.util.Vnd;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 
@@ -22,43 +34,37 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 @Transactional
 public class AccountingService {
-    private final InvoiceRepository invoiceRepository;
-
+    private final TariffSimulator tariffSimulator;
+    private final InvoiceAggregateStore invoiceAggregateStore;
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final RevenueRollupStore revenueRollupStore;
+    private final InvoiceCube invoiceCube;
+    private final DashboardStream dashboardStream;
+    private final ReadCaches readCaches;
+
+    // Đọc bảng tổng hợp theo trạng thái thay vì quét bảng invoice
     public AccountingDashboardResponseDTO getDashboardMetrics() {
+        return readCaches.getDashboardMetrics().get(List.of(), invoiceAggregateStore::dashboardMetrics);
+    }
 
-        BigDecimal revAmount = invoiceRepository.sumTotalAmountByStatus(InvoiceStatus.PAID);
-        long revCount = invoiceRepository.countByStatus(InvoiceStatus.PAID);
-
-        BigDecimal debtAmount = invoiceRepository.sumTotalAmountByStatus(InvoiceStatus.UNPAID);
-        long debtCount = invoiceRepository.countByStatus(InvoiceStatus.UNPAID);
-
-        BigDecimal pendAmount = invoiceRepository.sumTotalAmountByStatus(InvoiceStatus.PENDING);
-        long pendCount = invoiceRepository.countByStatus(InvoiceStatus.PENDING);
-
-        long totalInvoices = invoiceRepository.count();
-
-        return AccountingDashboardResponseDTO.builder()
-                .revenue(AccountingDashboardResponseDTO.DashboardMetricDTO.builder()
-                        .totalAmount(revAmount)
-                        .invoiceCount(revCount)
-                        .build())
-
-                .receivable(AccountingDashboardResponseDTO.DashboardMetricDTO.builder()
-                        .totalAmount(debtAmount)
-                        .invoiceCount(debtCount)
-                        .build())
+    public List<ReadCacheStatsDTO> getReadCacheStats() {
+        return readCaches.stats();
+    }
 
-                .pending(AccountingDashboardResponseDTO.DashboardMetricDTO.builder()
-                        .totalAmount(pendAmount)
-                        .invoiceCount(pendCount)
-                        .build())
+    // Giữ kết nối SSE, đẩy chỉ số mới khi hóa đơn thay đổi thay cho việc gọi lại các API dashboard
+    public SseEmitter subscribeDashboard() {
+        return dashboardStream.subscribe();
+    }
 
-                .totalInvoices(totalInvoices)
-                .build();
+    public InvoiceAggregateRebuildDTO rebuildDashboardAggregates() {
+        InvoiceAggregateRebuildDTO result = invoiceAggregateStore.rebuild();
+        result.setRevenueRollupRows(revenueRollupStore.rebuild());
+        return result;
     }
     
+    // Theo kỳ hóa đơn (month/year), đọc từ bảng doanh thu tổng hợp nên không phụ thuộc số hóa đơn đã phát hành
     public List<MonthlyRevenueDTO> getRevenueChartData(int year) {
-        List<Object[]> rawData = invoiceRepository.findMonthlyRevenueByYear(year);
+        List<Object[]> rawData = revenueRollupRepository.sumByMonth(year);
 
         Map<Integer, MonthlyRevenueDTO> dataMap = new HashMap<>();
         
@@ -84,16 +90,13 @@ public class AccountingService {
     }
 
     public List<RevenueDistributionDTO> getRevenueDistribution(int month, int year) {
-        List<Object[]> rawData = invoiceRepository.findRevenueDistribution(month, year);
+        List<Object[]> rawData = revenueRollupRepository.sumPaidByService(month, year);
 
         List<RevenueDistributionDTO> result = new ArrayList<>();
-        BigDecimal totalRevenue = BigDecimal.ZERO;
+        Vnd totalRevenue = Vnd.ZERO;
 
         for (Object[] row : rawData) {
-            BigDecimal amount = (BigDecimal) row[1];
-            if (amount != null) {
-                totalRevenue = totalRevenue.add(amount);
-            }
+            totalRevenue = totalRevenue.plus(Vnd.of((BigDecimal) row[1]));
         }
 
         for (Object[] row : rawData) {
@@ -102,12 +105,8 @@ public class AccountingService {
 
             if (amount == null) amount = BigDecimal.ZERO;
 
-            Double percentage = 0.0;
-            if (totalRevenue.compareTo(BigDecimal.ZERO) > 0) {
-                percentage = amount.multiply(BigDecimal.valueOf(100))
-                        .divide(totalRevenue, 2, RoundingMode.HALF_UP) // Lấy 2 số thập phân
-                        .doubleValue();
-            }
+            // Lấy 2 số thập phân
+            Double percentage = Vnd.of(amount).percentOf(totalRevenue);
 
             result.add(new RevenueDistributionDTO(
                     convertToVietnamese(code),
@@ -130,4 +129,16 @@ public class AccountingService {
             default -> code.name();
         };
     }
-}
\ No newline at end of file
+
+    public TariffSimulationResultDTO simulateTariff(TariffSimulationRequestDTO request) {
+        return tariffSimulator.simulate(request);
+    }
+
+    public CubeQueryResultDTO queryCube(CubeQueryRequestDTO request) {
+        return invoiceCube.query(request);
+    }
+
+    public int refreshCube() {
+        return invoiceCube.refresh();
+    }
+}
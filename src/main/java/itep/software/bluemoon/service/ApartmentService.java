@@ -1,6 +1,7 @@
 package itep.software.bluemoon.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,6 +24,7 @@ import itep.software.bluemoon.repository.InvoiceRepository;
 import itep.software.bluemoon.repository.IssueRepository;
 import itep.software.bluemoon.repository.ResidentRepository;
 import itep.software.bluemoon.repository.VehicleRepository;
+import itep.software.bluemoon.service.cache.ReadCaches;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 
@@ -36,6 +38,7 @@ public class ApartmentService {
     private final InvoiceRepository invoiceRepository;
     private final IssueRepository issueRepository;
     private final VehicleRepository vehicleRepository;
+    private final ReadCaches readCaches;
 
     public List<Dropdown> searchApartmentDropdown(String keyword){
         if(keyword == null || keyword.isBlank()) {
@@ -46,9 +49,10 @@ public class ApartmentService {
     }
 
     public List<ApartmentSummary> searchByAllInformation(String keyword, UUID buildingId, Integer floor){
-        keyword = (keyword == null || keyword.isBlank()) ? null : keyword.trim();
+        String normalized = (keyword == null || keyword.isBlank()) ? null : keyword.trim();
         
-        return apartmentRepository.searchGeneral(keyword, buildingId, floor);
+        return readCaches.getApartmentSearches().get(Arrays.asList(normalized, buildingId, floor),
+                () -> apartmentRepository.searchGeneral(normalized, buildingId, floor));
     }
 
     @SuppressWarnings("null")
@@ -2,6 +2,7 @@ package itep.software.bluemoon.service;
 
 import itep.software.bluemoon.entity.accounting.Invoice;
 import itep.software.bluemoon.repository.InvoiceRepository;
+import itep.software.bluemoon.service.cache.ReadCaches;
 import lombok.RequiredArgsConstructor;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Service;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 @Service
@@ -17,8 +19,15 @@ import java.util.List;
 public class ExcelExportService {
 
     private final InvoiceRepository invoiceRepository;
+    private final ReadCaches readCaches;
 
+    // Nhiều người tải cùng một kỳ thì chỉ dựng file một lần
     public ByteArrayInputStream exportInvoicesToExcel(Integer month, Integer year) {
+        byte[] file = readCaches.getInvoiceExports().get(Arrays.asList(month, year), () -> buildWorkbook(month, year));
+        return new ByteArrayInputStream(file);
+    }
+
+    private byte[] buildWorkbook(Integer month, Integer year) {
         List<Invoice> invoices = invoiceRepository.findByMonthAndYear(month, year);
 
         try (Workbook workbook = new XSSFWorkbook();
@@ -65,7 +74,7 @@ public class ExcelExportService {
             }
 
             workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
+            return out.toByteArray();
 
         } catch (IOException e) {
             throw new RuntimeException("Error when create Excel file: " + e.getMessage());
@@ -14,6 +14,7 @@ import itep.software.bluemoon.model.DTO.accounting.extra.ExtraFeeDetailDTO;
 import itep.software.bluemoon.model.projection.ExtraFeeSummary;
 import itep.software.bluemoon.repository.ApartmentRepository;
 import itep.software.bluemoon.repository.ExtraFeeRepository;
+import itep.software.bluemoon.util.Vnd;
 import itep.software.bluemoon.util.VndUtils;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -71,7 +72,7 @@ public class ExtraFeeService {
             throw new IllegalArgumentException("Day can not be null!");
         }
 
-        BigDecimal amount = VndUtils.multiply(dto.getQuantity(), dto.getUnitPrice());
+        BigDecimal amount = Vnd.product(dto.getQuantity(), dto.getUnitPrice()).toBigDecimal();
 
         LocalDate feeDate = LocalDate.of(dto.getYear(), dto.getMonth(), dto.getDay());
 
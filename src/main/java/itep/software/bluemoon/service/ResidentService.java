@@ -1,6 +1,7 @@
 package itep.software.bluemoon.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,6 +20,7 @@ import itep.software.bluemoon.repository.ApartmentRepository;
 import itep.software.bluemoon.repository.PersonRepository;
 import itep.software.bluemoon.repository.ResidentRepository;
 import itep.software.bluemoon.repository.UserRepository;
+import itep.software.bluemoon.service.cache.ReadCaches;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 
@@ -30,6 +32,7 @@ public class ResidentService {
     private final ResidentRepository residentRepository;
     private final ApartmentRepository apartmentRepository;
     private final UserRepository userRepository;
+    private final ReadCaches readCaches;
     
     public List<Dropdown> searchForDropdown(String keyword){
         if(keyword == null || keyword.isBlank()) {
@@ -40,9 +43,10 @@ public class ResidentService {
     }
 
     public List<ResidentSummary> searchByAllInformation(String keyword, boolean includeInactive){
-        keyword = (keyword == null || keyword.isBlank()) ? null : keyword.trim();
+        String normalized = (keyword == null || keyword.isBlank()) ? null : keyword.trim();
 
-        return residentRepository.searchGeneral(keyword, includeInactive);
+        return readCaches.getResidentSearches().get(Arrays.asList(normalized, includeInactive),
+                () -> residentRepository.searchGeneral(normalized, includeInactive));
     }
 
     public ResidentDetailDTO getResidentDetail(UUID id) {
@@ -0,0 +1,60 @@
+package itep.software.bluemoon.service.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Từ điển chỉ thêm của một chiều (tòa nhà, tầng): giá trị -> mã liên tiếp từ 0.
+ * Mã đã cấp không đổi nên segment cũ vẫn dùng được sau khi làm mới; mỗi lần làm mới ghi vào bản sao
+ */
+final class CubeDictionary<T> {
+    private final List<T> values;
+    private final List<String> labels;
+    private final Map<T, Integer> codes;
+
+    CubeDictionary() {
+        this(new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+    }
+
+    private CubeDictionary(List<T> values, List<String> labels, Map<T, Integer> codes) {
+        this.values = values;
+        this.labels = labels;
+        this.codes = codes;
+    }
+
+    CubeDictionary<T> copy() {
+        return new CubeDictionary<>(new ArrayList<>(values), new ArrayList<>(labels), new HashMap<>(codes));
+    }
+
+    int code(T value, String label) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            labels.add(label);
+            codes.put(value, code);
+        } else if (label != null) {
+            // Tên tòa có thể đổi, giữ tên mới nhất
+            labels.set(code, label);
+        }
+        return code;
+    }
+
+    Integer find(T value) {
+        return codes.get(value);
+    }
+
+    T value(int code) {
+        return values.get(code);
+    }
+
+    String label(int code) {
+        return labels.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
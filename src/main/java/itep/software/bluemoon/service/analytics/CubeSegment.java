@@ -0,0 +1,29 @@
+package itep.software.bluemoon.service.analytics;
+
+/**
+ * Dữ liệu một kỳ hóa đơn của InvoiceCube, lưu theo cột: dòng r là một chi tiết hóa đơn.
+ * Mã tòa/tầng là chỉ số trong từ điển của cube, dịch vụ/trạng thái là ordinal của enum, tiền tính bằng đồng
+ */
+final class CubeSegment {
+    final int year;
+    final int month;
+    final int size;
+    final int[] building;
+    final int[] floor;
+    final int[] service;
+    final int[] status;
+    final long[] amount;
+    final long[] paid;
+
+    CubeSegment(int year, int month, int size) {
+        this.year = year;
+        this.month = month;
+        this.size = size;
+        this.building = new int[size];
+        this.floor = new int[size];
+        this.service = new int[size];
+        this.status = new int[size];
+        this.amount = new long[size];
+        this.paid = new long[size];
+    }
+}
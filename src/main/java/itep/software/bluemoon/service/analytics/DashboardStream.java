@@ -0,0 +1,217 @@
+package itep.software.bluemoon.service.analytics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.model.DTO.accounting.AccountingDashboardResponseDTO.DashboardMetricDTO;
+import itep.software.bluemoon.model.DTO.accounting.DashboardUpdateDTO;
+import itep.software.bluemoon.service.billing.InvoiceAggregateStore;
+import itep.software.bluemoon.service.billing.InvoiceChangeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Đẩy chỉ số dashboard qua Server-Sent Events. Nguồn là InvoiceChangeEvent đã commit; các thay đổi trong một nhịp
+ * (mặc định 500 ms) được gộp lại và đọc bảng tổng hợp một lần cho tất cả client.
+ * SseEmitter chạy ở chế độ async của servlet nên client đang chờ không giữ luồng nào; các lần gửi chạy trên virtual thread
+ * để client chậm không chặn client khác, nhưng nối tiếp nhau theo từng client vì client cộng statusDeltas theo thứ tự nhận
+ */
+@Component
+@Slf4j
+public class DashboardStream {
+    static final String EVENT_NAME = "dashboard";
+
+    private final InvoiceAggregateStore invoiceAggregateStore;
+    private final Map<SseEmitter, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // Cấp sequence và xếp hàng gửi dưới cùng khóa để hàng đợi của mỗi client luôn theo thứ tự sequence tăng dần
+    private final Object ordering = new Object();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("dashboard-stream").daemon(true).factory());
+
+    // Thay đổi đã commit nhưng chưa đẩy, chỉ truy cập trong synchronized
+    private Map<InvoiceStatus, InvoiceAggregateStore.Totals> pendingDeltas = new EnumMap<>(InvoiceStatus.class);
+    private Set<YearMonth> pendingPeriods = new TreeSet<>();
+    private boolean dirty;
+
+    @Value("${bluemoon.dashboard.stream.push-interval-millis:500}")
+    private long pushIntervalMillis = 500;
+
+    // Comment rỗng định kỳ để phát hiện client đã đóng kết nối và giữ kết nối qua proxy
+    @Value("${bluemoon.dashboard.stream.heartbeat-seconds:30}")
+    private long heartbeatSeconds = 30;
+
+    // Hết hạn thì EventSource của trình duyệt tự kết nối lại
+    @Value("${bluemoon.dashboard.stream.timeout-minutes:30}")
+    private long timeoutMinutes = 30;
+
+    public DashboardStream(InvoiceAggregateStore invoiceAggregateStore) {
+        this.invoiceAggregateStore = invoiceAggregateStore;
+    }
+
+    @PostConstruct
+    void start() {
+        ticker.scheduleWithFixedDelay(this::flushQuietly, pushIntervalMillis, pushIntervalMillis, TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+        subscribers.keySet().forEach(SseEmitter::complete);
+        subscribers.clear();
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(timeoutMinutes).toMillis());
+        register(emitter);
+        return emitter;
+    }
+
+    // Gửi ngay trạng thái hiện tại, sau đó chỉ gửi khi có thay đổi
+    void register(SseEmitter emitter) {
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.put(emitter, subscriber);
+        synchronized (ordering) {
+            DashboardUpdateDTO update = update(Map.of(), Set.of());
+            subscriber.enqueue(() -> event(update));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInvoiceChange(InvoiceChangeEvent event) {
+        synchronized (this) {
+            event.statusDeltas().forEach((status, totals) -> pendingDeltas.merge(status, totals, InvoiceAggregateStore.Totals::plus));
+            pendingPeriods.addAll(event.periods());
+            dirty = true;
+        }
+    }
+
+    void flush() {
+        Map<InvoiceStatus, InvoiceAggregateStore.Totals> deltas;
+        Set<YearMonth> periods;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            deltas = pendingDeltas;
+            periods = pendingPeriods;
+            pendingDeltas = new EnumMap<>(InvoiceStatus.class);
+            pendingPeriods = new TreeSet<>();
+            dirty = false;
+        }
+        // Không ai nghe thì không đọc DB
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        synchronized (ordering) {
+            DashboardUpdateDTO update = update(deltas, periods);
+            for (Subscriber subscriber : subscribers.values()) {
+                subscriber.enqueue(() -> event(update));
+            }
+        }
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Dashboard push failed: {}", e.getMessage());
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.enqueue(() -> SseEmitter.event().comment("ping"));
+        }
+    }
+
+    private DashboardUpdateDTO update(Map<InvoiceStatus, InvoiceAggregateStore.Totals> deltas, Set<YearMonth> periods) {
+        Map<InvoiceStatus, DashboardMetricDTO> statusDeltas = new EnumMap<>(InvoiceStatus.class);
+        deltas.forEach((status, totals) -> statusDeltas.put(status, InvoiceAggregateStore.toMetric(totals)));
+        List<String> changedPeriods = periods.stream().map(YearMonth::toString).toList();
+        return DashboardUpdateDTO.builder()
+                .sequence(sequence.incrementAndGet())
+                .emittedAt(LocalDateTime.now())
+                .metrics(invoiceAggregateStore.dashboardMetrics())
+                .statusDeltas(statusDeltas)
+                .changedPeriods(changedPeriods)
+                .build();
+    }
+
+    private static SseEmitter.SseEventBuilder event(DashboardUpdateDTO update) {
+        return SseEmitter.event()
+                .name(EVENT_NAME)
+                .id(String.valueOf(update.getSequence()))
+                .data(update, MediaType.APPLICATION_JSON);
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            drop(emitter);
+        }
+    }
+
+    // Client đã đóng kết nối
+    private void drop(SseEmitter emitter) {
+        if (subscribers.remove(emitter) != null) {
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {
+                // Kết nối đã hỏng, không còn gì để đóng
+            }
+        }
+    }
+
+    // Mỗi lần gửi nối vào sau lần gửi trước của cùng client; handle chạy kể cả khi lần trước lỗi
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private synchronized void enqueue(Supplier<SseEmitter.SseEventBuilder> event) {
+            tail = tail.handleAsync((ignored, error) -> {
+                send(emitter, event.get());
+                return null;
+            }, senders);
+        }
+    }
+}
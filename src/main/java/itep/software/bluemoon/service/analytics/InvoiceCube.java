@@ -0,0 +1,368 @@
+package itep.software.bluemoon.service.analytics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.enumeration.CubeDimension;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryRequestDTO;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryResultDTO;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryResultDTO.CubeRowDTO;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import itep.software.bluemoon.util.Vnd;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cube phân tích hóa đơn trong bộ nhớ ở mức chi tiết hóa đơn, chiều: tòa nhà, tầng, dịch vụ, trạng thái, tháng, năm.
+ * Mỗi kỳ là một CubeSegment lưu theo cột; truy vấn group-by/lọc tùy ý chỉ duyệt mảng nguyên thủy, không chạm DB.
+ * Làm mới từng phần: chỉ nạp lại kỳ có số hóa đơn, tổng tiền, số đã thu hoặc lastModifiedDate khác lần trước
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceCube {
+    private static final ServiceCode[] SERVICES = ServiceCode.values();
+    private static final InvoiceStatus[] STATUSES = InvoiceStatus.values();
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceDetailRepository invoiceDetailRepository;
+
+    // Thay cả ảnh khi làm mới nên truy vấn đọc không cần khóa
+    private volatile Snapshot snapshot;
+
+    record PeriodVersion(long invoiceCount, LocalDateTime lastModified, BigDecimal totalAmount, BigDecimal paidAmount) {}
+
+    record Snapshot(TreeMap<Integer, CubeSegment> segments, Map<Integer, PeriodVersion> versions,
+                    CubeDictionary<UUID> buildings, CubeDictionary<Integer> floors, LocalDateTime refreshedAt) {
+        int minYear() {
+            return segments.isEmpty() ? 0 : segments.firstKey() / 12;
+        }
+
+        int yearSpan() {
+            return segments.isEmpty() ? 1 : segments.lastKey() / 12 - segments.firstKey() / 12 + 1;
+        }
+    }
+
+    @Scheduled(cron = "${bluemoon.analytics.cube.refresh-cron:0 */5 * * * *}")
+    public void refreshOnSchedule() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Invoice cube refresh failed: {}", e.getMessage());
+        }
+    }
+
+    // Trả về số kỳ đã nạp lại
+    public synchronized int refresh() {
+        long start = System.nanoTime();
+        Snapshot current = snapshot;
+
+        // Đọc phiên bản trước khi nạp: kỳ bị sửa giữa chừng sẽ lệch phiên bản và được nạp lại lần sau
+        Map<Integer, PeriodVersion> versions = new HashMap<>();
+        for (Object[] row : invoiceRepository.findPeriodVersions()) {
+            // [năm, tháng, số hóa đơn, lần sửa cuối, tổng tiền, đã thanh toán]
+            int period = ((Number) row[0]).intValue() * 12 + ((Number) row[1]).intValue() - 1;
+            versions.put(period, new PeriodVersion(((Number) row[2]).longValue(), (LocalDateTime) row[3],
+                    (BigDecimal) row[4], (BigDecimal) row[5]));
+        }
+
+        CubeDictionary<UUID> buildings = current == null ? new CubeDictionary<>() : current.buildings().copy();
+        CubeDictionary<Integer> floors = current == null ? new CubeDictionary<>() : current.floors().copy();
+        TreeMap<Integer, CubeSegment> segments = new TreeMap<>();
+        int reloaded = 0;
+        for (Map.Entry<Integer, PeriodVersion> version : versions.entrySet()) {
+            int period = version.getKey();
+            CubeSegment existing = current == null ? null : current.segments().get(period);
+            if (existing != null && version.getValue().equals(current.versions().get(period))) {
+                segments.put(period, existing);
+                continue;
+            }
+            segments.put(period, load(period / 12, period % 12 + 1, buildings, floors));
+            reloaded++;
+        }
+
+        snapshot = new Snapshot(segments, versions, buildings, floors, LocalDateTime.now());
+        if (reloaded > 0 || current == null || current.segments().size() != segments.size()) {
+            log.info("Invoice cube refreshed: {} of {} periods reloaded in {} ms", reloaded, segments.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        return reloaded;
+    }
+
+    private CubeSegment load(int year, int month, CubeDictionary<UUID> buildings, CubeDictionary<Integer> floors) {
+        List<Object[]> rows = invoiceDetailRepository.findCubeFactsByPeriod(month, year);
+        CubeSegment segment = new CubeSegment(year, month, rows.size());
+        for (int r = 0; r < rows.size(); r++) {
+            // [id tòa, tên tòa, tầng, mã dịch vụ, trạng thái, tiền chi tiết, tổng tiền hóa đơn, đã thanh toán của hóa đơn]
+            Object[] row = rows.get(r);
+            InvoiceStatus status = (InvoiceStatus) row[4];
+            BigDecimal amount = row[5] == null ? BigDecimal.ZERO : (BigDecimal) row[5];
+            segment.building[r] = buildings.code((UUID) row[0], (String) row[1]);
+            segment.floor[r] = floors.code(((Number) row[2]).intValue(), String.valueOf(row[2]));
+            segment.service[r] = ((ServiceCode) row[3]).ordinal();
+            segment.status[r] = status.ordinal();
+            segment.amount[r] = Vnd.of(amount).dong();
+            segment.paid[r] = paidShare(status, amount, (BigDecimal) row[6], (BigDecimal) row[7]);
+        }
+        return segment;
+    }
+
+    // Hóa đơn trả một phần: chia số đã thu cho các chi tiết theo tỷ lệ tiền
+    private static long paidShare(InvoiceStatus status, BigDecimal amount, BigDecimal invoiceTotal, BigDecimal invoicePaid) {
+        if (status == InvoiceStatus.PAID) {
+            return Vnd.of(amount).dong();
+        }
+        if (invoicePaid == null || invoicePaid.signum() <= 0 || invoiceTotal == null || invoiceTotal.signum() <= 0) {
+            return 0;
+        }
+        return Vnd.of(amount.multiply(invoicePaid.min(invoiceTotal)).divide(invoiceTotal, 0, RoundingMode.HALF_UP)).dong();
+    }
+
+    public CubeQueryResultDTO query(CubeQueryRequestDTO request) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        long start = System.nanoTime();
+
+        List<CubeDimension> groupBy = request.getGroupBy() == null ? new ArrayList<>() : new ArrayList<>(request.getGroupBy());
+        if (groupBy.contains(null) || new HashSet<>(groupBy).size() != groupBy.size()) {
+            throw new RuntimeException("groupBy must list distinct dimensions!");
+        }
+
+        // Khóa nhóm theo cơ số hỗn hợp: chiều đầu tiên có trọng số lớn nhất nên sắp theo khóa là sắp theo groupBy
+        int[] cardinality = new int[groupBy.size()];
+        long[] weight = new long[groupBy.size()];
+        Map<CubeDimension, Long> weights = new EnumMap<>(CubeDimension.class);
+        long cells = 1;
+        for (int i = groupBy.size() - 1; i >= 0; i--) {
+            cardinality[i] = cardinality(groupBy.get(i), current);
+            weight[i] = cells;
+            weights.put(groupBy.get(i), cells);
+            cells = Math.multiplyExact(cells, cardinality[i]);
+        }
+        long wBuilding = weights.getOrDefault(CubeDimension.BUILDING, 0L);
+        long wFloor = weights.getOrDefault(CubeDimension.FLOOR, 0L);
+        long wService = weights.getOrDefault(CubeDimension.SERVICE, 0L);
+        long wStatus = weights.getOrDefault(CubeDimension.STATUS, 0L);
+        long wMonth = weights.getOrDefault(CubeDimension.MONTH, 0L);
+        long wYear = weights.getOrDefault(CubeDimension.YEAR, 0L);
+
+        Map<CubeDimension, List<String>> filters = request.getFilters() == null ? Map.of() : request.getFilters();
+        boolean[] buildingFilter = filter(CubeDimension.BUILDING, filters, current);
+        boolean[] floorFilter = filter(CubeDimension.FLOOR, filters, current);
+        boolean[] serviceFilter = filter(CubeDimension.SERVICE, filters, current);
+        boolean[] statusFilter = filter(CubeDimension.STATUS, filters, current);
+        boolean[] monthFilter = filter(CubeDimension.MONTH, filters, current);
+        boolean[] yearFilter = filter(CubeDimension.YEAR, filters, current);
+
+        GroupTable table = new GroupTable();
+        long scanned = 0;
+        int minYear = current.minYear();
+        for (CubeSegment segment : current.segments().values()) {
+            int monthCode = segment.month - 1;
+            int yearCode = segment.year - minYear;
+            // Tháng/năm là hằng số trong một segment: loại cả segment thay vì từng dòng
+            if ((monthFilter != null && !monthFilter[monthCode]) || (yearFilter != null && !yearFilter[yearCode])) {
+                continue;
+            }
+            long periodKey = monthCode * wMonth + yearCode * wYear;
+            for (int r = 0; r < segment.size; r++) {
+                if ((buildingFilter != null && !buildingFilter[segment.building[r]])
+                        || (floorFilter != null && !floorFilter[segment.floor[r]])
+                        || (serviceFilter != null && !serviceFilter[segment.service[r]])
+                        || (statusFilter != null && !statusFilter[segment.status[r]])) {
+                    continue;
+                }
+                long key = periodKey
+                        + segment.building[r] * wBuilding
+                        + segment.floor[r] * wFloor
+                        + segment.service[r] * wService
+                        + segment.status[r] * wStatus;
+                table.add(key, segment.amount[r], segment.paid[r]);
+            }
+            scanned += segment.size;
+        }
+
+        List<CubeRowDTO> rows = new ArrayList<>(table.size);
+        for (int slot : table.slotsByKey()) {
+            long key = table.groupKeys[slot];
+            Map<CubeDimension, String> keys = new EnumMap<>(CubeDimension.class);
+            for (int i = 0; i < groupBy.size(); i++) {
+                keys.put(groupBy.get(i), label(groupBy.get(i), (int) (key / weight[i] % cardinality[i]), current));
+            }
+            Vnd amount = Vnd.of(table.amount[slot]);
+            Vnd paid = Vnd.of(table.paid[slot]);
+            rows.add(CubeRowDTO.builder()
+                    .keys(keys)
+                    .amount(amount.toBigDecimal())
+                    .paidAmount(paid.toBigDecimal())
+                    .outstandingAmount(amount.minus(paid).toBigDecimal())
+                    .paidPercentage(paid.percentOf(amount))
+                    .lineCount(table.lines[slot])
+                    .build());
+        }
+
+        return CubeQueryResultDTO.builder()
+                .groupBy(groupBy)
+                .refreshedAt(current.refreshedAt())
+                .scannedLines(scanned)
+                .durationMicros((System.nanoTime() - start) / 1_000)
+                .rows(rows)
+                .build();
+    }
+
+    private static int cardinality(CubeDimension dimension, Snapshot snapshot) {
+        return switch (dimension) {
+            case BUILDING -> Math.max(1, snapshot.buildings().size());
+            case FLOOR -> Math.max(1, snapshot.floors().size());
+            case SERVICE -> SERVICES.length;
+            case STATUS -> STATUSES.length;
+            case MONTH -> 12;
+            case YEAR -> snapshot.yearSpan();
+        };
+    }
+
+    private static String label(CubeDimension dimension, int code, Snapshot snapshot) {
+        return switch (dimension) {
+            case BUILDING -> snapshot.buildings().label(code);
+            case FLOOR -> snapshot.floors().label(code);
+            case SERVICE -> SERVICES[code].name();
+            case STATUS -> STATUSES[code].name();
+            case MONTH -> String.valueOf(code + 1);
+            case YEAR -> String.valueOf(snapshot.minYear() + code);
+        };
+    }
+
+    // null: chiều không bị lọc; mảng theo mã của chiều, giá trị không có trong dữ liệu thì không khớp dòng nào
+    private static boolean[] filter(CubeDimension dimension, Map<CubeDimension, List<String>> filters, Snapshot snapshot) {
+        List<String> values = filters.get(dimension);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        boolean[] accepted = new boolean[cardinality(dimension, snapshot)];
+        for (String raw : values) {
+            String value = Objects.requireNonNull(raw, "Filter value must not be null!").trim();
+            try {
+                switch (dimension) {
+                    case BUILDING -> {
+                        for (int code = 0; code < snapshot.buildings().size(); code++) {
+                            if (snapshot.buildings().value(code).toString().equalsIgnoreCase(value)
+                                    || value.equalsIgnoreCase(snapshot.buildings().label(code))) {
+                                accepted[code] = true;
+                            }
+                        }
+                    }
+                    case FLOOR -> {
+                        Integer code = snapshot.floors().find(Integer.parseInt(value));
+                        if (code != null) accepted[code] = true;
+                    }
+                    case SERVICE -> accepted[ServiceCode.valueOf(value.toUpperCase()).ordinal()] = true;
+                    case STATUS -> accepted[InvoiceStatus.valueOf(value.toUpperCase()).ordinal()] = true;
+                    case MONTH -> {
+                        int month = Integer.parseInt(value);
+                        if (month < 1 || month > 12) throw new IllegalArgumentException();
+                        accepted[month - 1] = true;
+                    }
+                    case YEAR -> {
+                        int code = Integer.parseInt(value) - snapshot.minYear();
+                        if (code >= 0 && code < accepted.length) accepted[code] = true;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid " + dimension + " filter value: " + value);
+            }
+        }
+        return accepted;
+    }
+
+    // Bảng băm địa chỉ mở khóa long -> ô cộng dồn, không boxing trên vòng lặp từng dòng
+    private static final class GroupTable {
+        private long[] hashKeys = new long[64];
+        private int[] hashSlots = new int[64]; // ô + 1, 0 là trống
+        long[] groupKeys = new long[16];
+        long[] amount = new long[16];
+        long[] paid = new long[16];
+        long[] lines = new long[16];
+        int size;
+
+        void add(long key, long lineAmount, long linePaid) {
+            int slot = slot(key);
+            amount[slot] += lineAmount;
+            paid[slot] += linePaid;
+            lines[slot]++;
+        }
+
+        private int slot(long key) {
+            int mask = hashKeys.length - 1;
+            int h = hash(key) & mask;
+            while (hashSlots[h] != 0) {
+                if (hashKeys[h] == key) {
+                    return hashSlots[h] - 1;
+                }
+                h = (h + 1) & mask;
+            }
+            int slot = size++;
+            if (slot == groupKeys.length) {
+                int capacity = groupKeys.length * 2;
+                groupKeys = Arrays.copyOf(groupKeys, capacity);
+                amount = Arrays.copyOf(amount, capacity);
+                paid = Arrays.copyOf(paid, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+            }
+            groupKeys[slot] = key;
+            hashKeys[h] = key;
+            hashSlots[h] = slot + 1;
+            if (size * 2 > hashKeys.length) {
+                rehash();
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            hashKeys = new long[hashKeys.length * 2];
+            hashSlots = new int[hashSlots.length * 2];
+            int mask = hashKeys.length - 1;
+            for (int slot = 0; slot < size; slot++) {
+                int h = hash(groupKeys[slot]) & mask;
+                while (hashSlots[h] != 0) {
+                    h = (h + 1) & mask;
+                }
+                hashKeys[h] = groupKeys[slot];
+                hashSlots[h] = slot + 1;
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        List<Integer> slotsByKey() {
+            List<Integer> slots = new ArrayList<>(size);
+            for (int slot = 0; slot < size; slot++) {
+                slots.add(slot);
+            }
+            slots.sort((a, b) -> Long.compare(groupKeys[a], groupKeys[b]));
+            return slots;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package itep.software.bluemoon.service.billing;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.ExtraFee;
+import itep.software.bluemoon.entity.accounting.UsageRecord;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Dữ liệu dùng chung cho một lần tạo hóa đơn (chỉ đọc, chia sẻ giữa các luồng)
+ */
+@Getter
+@Builder(toBuilder = true)
+public class BillingContext {
+    private final int month;
+    private final int year;
+    private final List<Apartment> apartments;
+    private final BillingPlan plan;
+    private final TariffSnapshot tariffs;
+    private final Map<ServiceCode, Map<UUID, UsageRecord>> usage;
+    private final VehicleCountTable vehicleCounts;
+    private final Map<UUID, List<ExtraFee>> extraFees;
+    private final Map<UUID, String> fingerprints;
+
+    // Gom các dòng [mã dịch vụ, UsageRecord] theo dịch vụ rồi theo căn hộ (trùng thì giữ bản đầu)
+    public static Map<ServiceCode, Map<UUID, UsageRecord>> usageOf(List<Object[]> rows) {
+        Map<ServiceCode, Map<UUID, UsageRecord>> usage = new EnumMap<>(ServiceCode.class);
+        for (Object[] row : rows) {
+            UsageRecord record = (UsageRecord) row[1];
+            usage.computeIfAbsent((ServiceCode) row[0], code -> new HashMap<>())
+                    .putIfAbsent(record.getApartment().getId(), record);
+        }
+        return usage;
+    }
+
+    public UsageRecord getUsage(ServiceCode code, UUID apartmentId) {
+        Map<UUID, UsageRecord> records = usage.get(code);
+        return records == null ? null : records.get(apartmentId);
+    }
+
+    public List<ExtraFee> getExtraFees(UUID apartmentId) {
+        return extraFees.getOrDefault(apartmentId, List.of());
+    }
+
+    public String getFingerprint(UUID apartmentId) {
+        return fingerprints.get(apartmentId);
+    }
+}
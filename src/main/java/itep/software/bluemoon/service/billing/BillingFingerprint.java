@@ -0,0 +1,71 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.UsageRecord;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.enumeration.VehicleType;
+
+/**
+ * Dấu vân tay (SHA-256) của dữ liệu đầu vào tính hóa đơn một căn hộ: diện tích, số xe, chỉ số điện nước,
+ * các khoản phí khác và phiên bản bảng giá. Dấu vân tay không đổi thì hóa đơn không cần tạo lại
+ */
+public final class BillingFingerprint {
+    private BillingFingerprint() {
+    }
+
+    public static String of(Apartment apartment, BillingContext context, Collection<UUID> extraFeeIds) {
+        UUID apartmentId = apartment.getId();
+        StringBuilder input = new StringBuilder(256);
+        input.append("area=").append(plain(apartment.getArea()));
+
+        input.append("|vehicles=");
+        for (VehicleType type : VehicleType.values()) {
+            input.append(context.getVehicleCounts().count(apartmentId, type)).append(',');
+        }
+
+        for (ServiceCode code : context.getPlan().usageCodes()) {
+            appendUsage(input, "|" + code + "=", context.getUsage(code, apartmentId));
+        }
+
+        input.append("|fees=");
+        extraFeeIds.stream().sorted().forEach(id -> input.append(id).append(','));
+
+        input.append("|services=");
+        context.getPlan().steps().forEach(step -> input.append(step.type().getCode()).append(','));
+
+        input.append("|tariff=").append(context.getTariffs().getVersion());
+        return sha256(input.toString());
+    }
+
+    public static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String plain(BigDecimal value) {
+        return value == null ? "-" : value.stripTrailingZeros().toPlainString();
+    }
+
+    private static void appendUsage(StringBuilder input, String label, UsageRecord usage) {
+        input.append(label);
+        if (usage == null) {
+            input.append('-');
+            return;
+        }
+        input.append(plain(usage.getOldIndex())).append(',')
+             .append(plain(usage.getNewIndex())).append(',')
+             .append(plain(usage.getQuantity()));
+    }
+}
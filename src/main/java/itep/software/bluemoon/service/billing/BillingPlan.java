@@ -0,0 +1,68 @@
+package itep.software.bluemoon.service.billing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.service.billing.calculator.BillingInput;
+import itep.software.bluemoon.service.billing.calculator.ServiceCalculator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kế hoạch tính tiền của một lượt tạo hóa đơn, dựng một lần từ các loại dịch vụ hiện có:
+ * chỉ các dịch vụ có calculator được duyệt cho từng căn hộ, và chỉ dữ liệu gom mà chúng khai báo được nạp
+ */
+@Slf4j
+public final class BillingPlan {
+    private final List<Step> steps;
+    private final Set<BillingInput> inputs;
+    private final Set<ServiceCode> usageCodes;
+
+    private BillingPlan(List<Step> steps, Set<BillingInput> inputs, Set<ServiceCode> usageCodes) {
+        this.steps = steps;
+        this.inputs = inputs;
+        this.usageCodes = usageCodes;
+    }
+
+    static BillingPlan of(List<ServiceType> serviceTypes, Map<ServiceCode, ServiceCalculator> calculators) {
+        List<Step> steps = new ArrayList<>();
+        Set<BillingInput> inputs = EnumSet.noneOf(BillingInput.class);
+        Set<ServiceCode> usageCodes = EnumSet.noneOf(ServiceCode.class);
+        for (ServiceType type : serviceTypes) {
+            ServiceCalculator calculator = calculators.get(type.getCode());
+            if (calculator == null) {
+                log.warn("No calculator registered for service {}, skipped", type.getCode());
+                continue;
+            }
+            steps.add(new Step(type, calculator));
+            inputs.addAll(calculator.inputs());
+            if (calculator.inputs().contains(BillingInput.USAGE)) {
+                usageCodes.add(type.getCode());
+            }
+        }
+        // Thứ tự cố định theo ServiceCode để dòng chi tiết và dấu vân tay không phụ thuộc thứ tự findAll()
+        steps.sort(Comparator.comparing(step -> step.type().getCode()));
+        return new BillingPlan(List.copyOf(steps), inputs, usageCodes);
+    }
+
+    public List<Step> steps() {
+        return steps;
+    }
+
+    public boolean needs(BillingInput input) {
+        return inputs.contains(input);
+    }
+
+    // Các dịch vụ công tơ cần nạp chỉ số trong kỳ
+    public Set<ServiceCode> usageCodes() {
+        return usageCodes;
+    }
+
+    public record Step(ServiceType type, ServiceCalculator calculator) {
+    }
+}
@@ -0,0 +1,19 @@
+package itep.software.bluemoon.service.billing;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.ExtraFee;
+
+/**
+ * Dữ liệu tham chiếu không phụ thuộc chỉ số điện nước của kỳ: căn hộ, kế hoạch tính tiền, bảng giá, số xe và phí khác.
+ * Lần backfill nạp một lần rồi dựng một bản cho mỗi tháng (bảng giá và phí khác theo tháng)
+ */
+public record BillingReference(List<Apartment> apartments,
+                               BillingPlan plan,
+                               TariffSnapshot tariffs,
+                               VehicleCountTable vehicleCounts,
+                               Map<UUID, List<ExtraFee>> extraFees) {
+}
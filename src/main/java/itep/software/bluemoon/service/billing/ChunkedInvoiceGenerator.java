@@ -0,0 +1,261 @@
+package itep.software.bluemoon.service.billing;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.ExtraFee;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceGenerationCheckpoint;
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO;
+import itep.software.bluemoon.repository.ApartmentRepository;
+import itep.software.bluemoon.repository.ExtraFeeRepository;
+import itep.software.bluemoon.repository.InvoiceGenerationCheckpointRepository;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import itep.software.bluemoon.repository.ServiceTypeRepository;
+import itep.software.bluemoon.repository.UsageRecordRepository;
+import itep.software.bluemoon.repository.VehicleRepository;
+import itep.software.bluemoon.service.billing.calculator.BillingInput;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tạo hóa đơn theo lô (chế độ STREAMING): căn hộ được đọc theo keyset trên id, mỗi lô chỉ nạp dữ liệu của chính nó
+ * và được lưu cùng checkpoint trong một transaction, sau đó persistence context được dọn sạch.
+ * Bộ nhớ không tăng theo số căn hộ; lần chạy bị lỗi giữa chừng được chạy tiếp từ lô cuối cùng đã commit
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedInvoiceGenerator {
+    private final InvoiceRepository invoiceRepository;
+    private final ApartmentRepository apartmentRepository;
+    private final ServiceTypeRepository serviceTypeRepository;
+    private final TariffCache tariffCache;
+    private final UsageRecordRepository usageRecordRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ExtraFeeRepository extraFeeRepository;
+    private final InvoiceGenerationCheckpointRepository checkpointRepository;
+    private final InvoiceCalculator invoiceCalculator;
+    private final InvoiceBatch invoiceBatch;
+    private final PendingInvoiceTeardown pendingInvoiceTeardown;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${bluemoon.invoice.generation.chunk-size:500}")
+    private int chunkSize;
+
+    public InvoiceGenerationReportDTO generate(int month, int year, GenerationProgress progress) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        // 1. Chạy tiếp từ checkpoint dở dang, hoặc dọn hóa đơn PENDING cũ và bắt đầu checkpoint mới
+        RunState state = newTransaction().execute(tx -> begin(month, year));
+        BillingContext base = newTransaction().execute(tx -> baseContext(month, year));
+        progress.started((int) Math.max(0, state.total() - state.processed()));
+
+        // 2. Từng lô một, mỗi lô một transaction
+        UUID cursor = state.cursor();
+        int apartmentCount = 0;
+        int invoiceCount = 0;
+        int chunkCount = 0;
+        List<String> errors = new ArrayList<>();
+        int failedApartmentCount = 0;
+        GenerationStatus status;
+        try {
+            while (true) {
+                UUID after = cursor;
+                ChunkResult chunk = newTransaction().execute(tx -> runChunk(state.checkpointId(), after, base, progress));
+                if (chunk.apartmentCount() == 0) break;
+
+                cursor = chunk.lastApartmentId();
+                apartmentCount += chunk.apartmentCount();
+                invoiceCount += chunk.invoiceCount();
+                chunkCount++;
+                errors.addAll(chunk.errors());
+                progress.processed(chunk.apartmentCount());
+            }
+            // Tính cả căn hộ lỗi của các lô đã commit ở lần chạy trước: kỳ chưa đủ hóa đơn thì không ghi SUCCESS để chặn phát hành
+            failedApartmentCount = newTransaction().execute(tx -> complete(state.checkpointId(), errors));
+            status = failedApartmentCount == 0 ? GenerationStatus.SUCCESS : GenerationStatus.PARTIAL;
+        } catch (Exception e) {
+            // Lô lỗi đã rollback; các lô trước vẫn giữ nguyên và checkpoint chỉ tới lô cuối cùng đã commit
+            log.error("Lỗi tạo hóa đơn theo lô {}/{} sau căn hộ {}: {}", month, year, cursor, e.getMessage());
+            String error = "Chunk after apartment " + cursor + " rolled back: " + e.getMessage();
+            errors.add(error);
+            failedApartmentCount = errors.size();
+            progress.error(error);
+            newTransaction().executeWithoutResult(tx -> finish(state.checkpointId(), GenerationStatus.FAILED, error));
+            status = GenerationStatus.FAILED;
+        }
+
+        log.info("Generated {} invoices for {}/{} in {} ms (streaming, {} chunks of {}, resumed {}, status {})",
+                invoiceCount, month, year, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                chunkCount, chunkSize, state.resumed(), status);
+        return InvoiceGenerationReportDTO.builder()
+                .month(month)
+                .year(year)
+                .mode(GenerationMode.STREAMING)
+                .status(status)
+                .startedAt(startedAt)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .apartmentCount(apartmentCount)
+                .invoiceCount(invoiceCount)
+                .failedApartmentCount(failedApartmentCount)
+                .addedCount(invoiceCount)
+                .chunkCount(chunkCount)
+                .resumed(state.resumed())
+                .partitions(List.of())
+                .errors(errors)
+                .build();
+    }
+
+    private RunState begin(int month, int year) {
+        boolean hasOfficialInvoices = invoiceRepository.existsByMonthAndYearAndStatusNot(
+                month, year, InvoiceStatus.PENDING);
+        if (hasOfficialInvoices) {
+            throw new RuntimeException("This month's bill has been finalized and cannot be re-generated!");
+        }
+
+        long total = apartmentRepository.countBillableApartments();
+        InvoiceGenerationCheckpoint checkpoint = checkpointRepository.findByMonthAndYear(month, year).orElse(null);
+        if (checkpoint != null && checkpoint.getLastApartmentId() != null
+                && (checkpoint.getStatus() == GenerationStatus.RUNNING || checkpoint.getStatus() == GenerationStatus.FAILED)) {
+            // Lần trước dừng giữa chừng: hóa đơn của các lô đã commit được giữ lại.
+            // PARTIAL đã chạy hết các lô, căn hộ lỗi nằm trước con trỏ nên phải tạo lại từ đầu;
+            // checkpoint không có con trỏ (chưa lô nào commit, hoặc do lượt tạo theo tòa nhà ghi) cũng vậy
+            checkpoint.setStatus(GenerationStatus.RUNNING);
+            checkpoint.setErrorMessage(null);
+            return new RunState(checkpoint.getId(), checkpoint.getLastApartmentId(), checkpoint.getProcessedCount(), total, true);
+        }
+
+        pendingInvoiceTeardown.deletePeriod(month, year);
+        pendingInvoiceTeardown.deleteCheckpoint(month, year);
+        InvoiceGenerationCheckpoint created = checkpointRepository.save(InvoiceGenerationCheckpoint.builder()
+                .month(month)
+                .year(year)
+                .status(GenerationStatus.RUNNING)
+                .build());
+        return new RunState(created.getId(), null, 0, total, false);
+    }
+
+    // Dữ liệu dùng chung cho mọi lô: kế hoạch tính tiền và bảng giá của kỳ
+    private BillingContext baseContext(int month, int year) {
+        return BillingContext.builder()
+                .month(month)
+                .year(year)
+                .apartments(List.of())
+                .plan(invoiceCalculator.plan(serviceTypeRepository.findAll()))
+                .tariffs(tariffCache.forPeriod(month, year))
+                .usage(Map.of())
+                .vehicleCounts(VehicleCountTable.of(List.of()))
+                .extraFees(Map.of())
+                .fingerprints(Map.of())
+                .build();
+    }
+
+    private ChunkResult runChunk(UUID checkpointId, UUID after, BillingContext base, GenerationProgress progress) {
+        List<Apartment> apartments = after == null
+                ? apartmentRepository.findBillableApartments(Limit.of(chunkSize))
+                : apartmentRepository.findBillableApartmentsAfter(after, Limit.of(chunkSize));
+        if (apartments.isEmpty()) {
+            return new ChunkResult(0, 0, after, List.of());
+        }
+
+        // Chỉ nạp dữ liệu gom mà kế hoạch cần, mỗi loại một câu cho cả lô
+        List<UUID> ids = apartments.stream().map(Apartment::getId).collect(Collectors.toList());
+        BillingPlan plan = base.getPlan();
+        BillingContext context = base.toBuilder()
+                .apartments(apartments)
+                .usage(plan.usageCodes().isEmpty() ? Map.of() : BillingContext.usageOf(usageRecordRepository
+                        .findAllByServiceCodesAndMonthAndYearAndApartmentIds(plan.usageCodes(), base.getMonth(), base.getYear(), ids)))
+                .vehicleCounts(plan.needs(BillingInput.VEHICLE_COUNTS)
+                        ? VehicleCountTable.of(vehicleRepository.countByApartmentAndType(ids)) : base.getVehicleCounts())
+                .extraFees(plan.needs(BillingInput.EXTRA_FEES)
+                        ? extraFeeRepository.findUnbilledByApartmentIds(ids).stream()
+                                .collect(Collectors.groupingBy(e -> e.getApartment().getId()))
+                        : Map.of())
+                .build();
+
+        Map<UUID, String> fingerprints = new HashMap<>();
+        for (Apartment apartment : apartments) {
+            List<UUID> feeIds = context.getExtraFees(apartment.getId()).stream().map(ExtraFee::getId).toList();
+            fingerprints.put(apartment.getId(), BillingFingerprint.of(apartment, context, feeIds));
+        }
+        context = context.toBuilder().fingerprints(fingerprints).build();
+
+        InvoiceBatch.Built built = invoiceBatch.build(apartments, context, progress);
+        List<Invoice> invoices = built.invoices();
+        List<String> errors = built.errors();
+        invoiceBatch.persist(invoices);
+
+        UUID lastApartmentId = ids.get(ids.size() - 1);
+        InvoiceGenerationCheckpoint checkpoint = checkpointRepository.findById(checkpointId)
+                .orElseThrow(() -> new RuntimeException("Generation checkpoint not found!"));
+        checkpoint.setLastApartmentId(lastApartmentId);
+        checkpoint.setProcessedCount(checkpoint.getProcessedCount() + apartments.size());
+        checkpoint.setInvoiceCount(checkpoint.getInvoiceCount() + invoices.size());
+        checkpoint.setChunkCount(checkpoint.getChunkCount() + 1);
+        checkpoint.setFailedCount(checkpoint.getFailedCount() + errors.size());
+
+        // Ghi checkpoint rồi bỏ toàn bộ entity của lô khỏi persistence context
+        entityManager.flush();
+        entityManager.clear();
+        return new ChunkResult(apartments.size(), invoices.size(), lastApartmentId, errors);
+    }
+
+    // Mọi lô đã commit: trả về tổng số căn hộ lỗi của kỳ, gồm cả các lần chạy trước
+    private int complete(UUID checkpointId, List<String> errors) {
+        InvoiceGenerationCheckpoint checkpoint = checkpointRepository.findById(checkpointId)
+                .orElseThrow(() -> new RuntimeException("Generation checkpoint not found!"));
+        int failed = checkpoint.getFailedCount();
+        List<String> messages = new ArrayList<>();
+        if (failed > errors.size()) {
+            messages.add((failed - errors.size()) + " apartment(s) failed in earlier runs");
+        }
+        messages.addAll(errors);
+        checkpoint.setStatus(failed == 0 ? GenerationStatus.SUCCESS : GenerationStatus.PARTIAL);
+        checkpoint.setErrorMessage(truncate(messages.isEmpty() ? null : String.join("; ", messages)));
+        return failed;
+    }
+
+    private void finish(UUID checkpointId, GenerationStatus status, String errorMessage) {
+        checkpointRepository.findById(checkpointId).ifPresent(checkpoint -> {
+            checkpoint.setStatus(status);
+            checkpoint.setErrorMessage(truncate(errorMessage));
+        });
+    }
+
+    private static String truncate(String errorMessage) {
+        return errorMessage != null && errorMessage.length() > 500 ? errorMessage.substring(0, 500) : errorMessage;
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private record RunState(UUID checkpointId, UUID cursor, int processed, long total, boolean resumed) {
+    }
+
+    private record ChunkResult(int apartmentCount, int invoiceCount, UUID lastApartmentId, List<String> errors) {
+    }
+}
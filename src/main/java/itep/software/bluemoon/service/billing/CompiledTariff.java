@@ -0,0 +1,124 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import itep.software.bluemoon.enumeration.TierCode;
+import itep.software.bluemoon.util.VndUtils;
+
+/**
+ * Bảng giá bậc thang đã "biên dịch": ranh giới tích lũy và tiền tích lũy tại mỗi ranh giới được tính sẵn,
+ * nên tính tiền cho một chỉ số tiêu thụ chỉ cần một lần tìm nhị phân và một phép nhân trên long.
+ * Đơn giá được lưu theo đơn vị 1/100 đồng để khớp cột numeric(20,2); mỗi bậc được làm tròn HALF_UP như VndUtils.multiply
+ */
+public final class CompiledTariff {
+    private static final long CENTS = 100;
+
+    private final TierCode[] codes;
+    private final BigDecimal[] unitPrices;
+    private final String[] labels;
+    private final long[] unitPriceCents;
+    // Chỉ số tiêu thụ tại cuối mỗi bậc (Long.MAX_VALUE cho bậc không giới hạn)
+    private final long[] upperBounds;
+    // Tiền của toàn bộ các bậc đứng trước bậc i
+    private final long[] costBefore;
+
+    private CompiledTariff(List<TariffSnapshot.Tier> tiers) {
+        int count = 0;
+        while (count < tiers.size()) {
+            // Sau bậc không giới hạn thì các bậc còn lại không bao giờ được dùng tới
+            if (tiers.get(count++).getMaxUsage() == null) break;
+        }
+
+        codes = new TierCode[count];
+        unitPrices = new BigDecimal[count];
+        labels = new String[count];
+        unitPriceCents = new long[count];
+        upperBounds = new long[count];
+        costBefore = new long[count];
+
+        long lower = 0;
+        long cost = 0;
+        for (int i = 0; i < count; i++) {
+            TariffSnapshot.Tier tier = tiers.get(i);
+            codes[i] = tier.getCode();
+            unitPrices[i] = tier.getUnitPrice() != null ? tier.getUnitPrice() : BigDecimal.ZERO;
+            String name = tier.getCode() != null ? tier.getCode().toString() : "Tier " + (i + 1);
+            labels[i] = name + " (" + VndUtils.format(unitPrices[i]) + ")";
+            unitPriceCents[i] = unitPrices[i].setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            costBefore[i] = cost;
+
+            if (tier.getMaxUsage() == null) {
+                upperBounds[i] = Long.MAX_VALUE;
+            } else {
+                // Ví dụ bậc 0-50 -> Size = 50.
+                long size = Math.max(0, (long) tier.getMaxUsage() - tier.getMinUsage());
+                upperBounds[i] = lower + size;
+                cost = Math.addExact(cost, tierCost(size, unitPriceCents[i]));
+                lower = upperBounds[i];
+            }
+        }
+    }
+
+    public static CompiledTariff of(List<TariffSnapshot.Tier> sortedTiers) {
+        return new CompiledTariff(sortedTiers);
+    }
+
+    // Tổng tiền (đồng) cho chỉ số tiêu thụ; phần vượt quá bậc cuối có giới hạn không được tính, giống vòng lặp cũ
+    public long cost(long quantity) {
+        if (quantity <= 0 || codes.length == 0) return 0;
+
+        int tier = findTier(quantity);
+        if (tier == codes.length) {
+            int last = codes.length - 1;
+            return costBefore[last] + tierCost(upperBounds[last] - lowerBound(last), unitPriceCents[last]);
+        }
+        return costBefore[tier] + tierCost(quantity - lowerBound(tier), unitPriceCents[tier]);
+    }
+
+    // Chi tiết từng bậc, chỉ dựng khi cần ghi line item
+    public List<Band> breakdown(long quantity) {
+        List<Band> bands = new ArrayList<>();
+        if (quantity <= 0) return bands;
+
+        for (int i = 0; i < codes.length; i++) {
+            long lower = lowerBound(i);
+            if (quantity <= lower) break;
+            long inTier = Math.min(quantity, upperBounds[i]) - lower;
+            bands.add(new Band(codes[i], labels[i], inTier, unitPrices[i], tierCost(inTier, unitPriceCents[i])));
+        }
+        return bands;
+    }
+
+    public int tierCount() {
+        return codes.length;
+    }
+
+    // Bậc đầu tiên có ranh giới trên >= quantity; trả về codes.length nếu vượt mọi bậc
+    private int findTier(long quantity) {
+        int index = Arrays.binarySearch(upperBounds, quantity);
+        if (index >= 0) {
+            // Các bậc rỗng có cùng ranh giới: lấy bậc đầu tiên
+            while (index > 0 && upperBounds[index - 1] == quantity) index--;
+            return index;
+        }
+        return -index - 1;
+    }
+
+    private long lowerBound(int tier) {
+        return tier == 0 ? 0 : upperBounds[tier - 1];
+    }
+
+    // quantity × đơn giá, làm tròn HALF_UP về đồng
+    private static long tierCost(long quantity, long priceCents) {
+        long product = Math.multiplyExact(quantity, priceCents);
+        long half = product >= 0 ? CENTS / 2 : -CENTS / 2;
+        return (product + half) / CENTS;
+    }
+
+    public record Band(TierCode code, String label, long quantity, BigDecimal unitPrice, long amount) {
+    }
+}
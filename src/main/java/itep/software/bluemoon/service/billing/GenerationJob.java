@@ -0,0 +1,103 @@
+package itep.software.bluemoon.service.billing;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.model.DTO.accounting.generation.GenerationJobDTO;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO;
+import itep.software.bluemoon.model.projection.InvoiceSummary;
+import lombok.Getter;
+
+/**
+ * Trạng thái của một lần tạo hóa đơn chạy nền, được cập nhật bởi engine và đọc bởi API thăm dò
+ */
+@Getter
+public class GenerationJob implements GenerationProgress {
+    private final UUID id = UUID.randomUUID();
+    private final int month;
+    private final int year;
+    private final GenerationMode mode;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final long submittedNanos = System.nanoTime();
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger processed = new AtomicInteger();
+    private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+
+    private volatile GenerationStatus status = GenerationStatus.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile long finishedNanos;
+    private volatile InvoiceGenerationReportDTO report;
+    private volatile List<InvoiceSummary> invoices;
+
+    public GenerationJob(int month, int year, GenerationMode mode) {
+        this.month = month;
+        this.year = year;
+        this.mode = mode;
+    }
+
+    @Override
+    public void started(int apartmentCount) {
+        total.set(apartmentCount);
+    }
+
+    @Override
+    public void processed(int apartmentCount) {
+        processed.addAndGet(apartmentCount);
+    }
+
+    @Override
+    public void error(String message) {
+        errors.add(message);
+    }
+
+    void succeed(InvoiceGenerationReportDTO report, List<InvoiceSummary> invoices) {
+        this.report = report;
+        this.invoices = invoices;
+        finish(report.getStatus());
+    }
+
+    void fail(String message) {
+        errors.add(message);
+        finish(GenerationStatus.FAILED);
+    }
+
+    public boolean isFinished() {
+        return status != GenerationStatus.RUNNING;
+    }
+
+    public GenerationJobDTO toDTO() {
+        long elapsedNanos = (isFinished() ? finishedNanos : System.nanoTime()) - submittedNanos;
+        double seconds = Math.max(elapsedNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        return GenerationJobDTO.builder()
+                .jobId(id)
+                .month(month)
+                .year(year)
+                .mode(mode)
+                .status(status)
+                .submittedAt(submittedAt)
+                .finishedAt(finishedAt)
+                .totalApartments(total.get())
+                .processedApartments(processed.get())
+                .apartmentsPerSecond(processed.get() / seconds)
+                .errors(new ArrayList<>(errors))
+                .report(report)
+                .invoices(invoices)
+                .build();
+    }
+
+    private void finish(GenerationStatus finalStatus) {
+        finishedNanos = System.nanoTime();
+        finishedAt = LocalDateTime.now();
+        status = finalStatus;
+    }
+}
@@ -0,0 +1,118 @@
+package itep.software.bluemoon.service.billing;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO;
+import itep.software.bluemoon.model.projection.InvoiceSummary;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chạy tạo hóa đơn dưới dạng job nền; mỗi (tháng, năm) chỉ có tối đa một job đang chạy trên node này,
+ * và InvoicePeriodLock tuần tự hóa các job cùng kỳ giữa các node
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GenerationJobManager {
+    private final InvoiceGenerationEngine invoiceGenerationEngine;
+    private final InvoiceRepository invoiceRepository;
+    private final InvoicePeriodLock invoicePeriodLock;
+
+    private final Map<UUID, GenerationJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, GenerationJob> runningByPeriod = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${bluemoon.invoice.generation.job-retention-minutes:60}")
+    private long retentionMinutes;
+
+    public GenerationJob submit(int month, int year, GenerationMode mode) {
+        GenerationJob job = register(month, year, mode);
+        executor.submit(() -> execute(job));
+        return job;
+    }
+
+    // Chạy ngay trên luồng gọi nhưng vẫn chịu ràng buộc một job mỗi kỳ
+    public GenerationJob run(int month, int year, GenerationMode mode) {
+        GenerationJob job = register(month, year, mode);
+        execute(job);
+        if (job.getReport() == null) {
+            throw new RuntimeException(String.join("; ", job.getErrors()));
+        }
+        return job;
+    }
+
+    // Một tháng của lần backfill, dùng dữ liệu tham chiếu đã nạp sẵn; không dựng danh sách hóa đơn
+    public GenerationJob run(int month, int year, GenerationMode mode, BillingReference reference) {
+        GenerationJob job = register(month, year, mode);
+        try (InvoicePeriodLock.Lease lease = invoicePeriodLock.acquire(month, year)) {
+            job.succeed(invoiceGenerationEngine.generate(month, year, mode, job, reference), List.of());
+        } catch (Exception e) {
+            log.error("Lỗi tạo hóa đơn {}/{}: {}", month, year, e.getMessage());
+            job.fail(e.getMessage());
+        } finally {
+            runningByPeriod.remove(periodKey(month, year), job);
+        }
+        return job;
+    }
+
+    public GenerationJob get(UUID jobId) {
+        return jobs.get(jobId);
+    }
+
+    public boolean isRunning(int month, int year) {
+        return runningByPeriod.containsKey(periodKey(month, year));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private GenerationJob register(int month, int year, GenerationMode mode) {
+        evictExpired();
+        GenerationJob job = new GenerationJob(month, year, mode);
+        GenerationJob running = runningByPeriod.putIfAbsent(periodKey(month, year), job);
+        if (running != null) {
+            throw new RuntimeException("Invoice generation for " + month + "/" + year
+                    + " is already running (job " + running.getId() + ")!");
+        }
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    private void execute(GenerationJob job) {
+        try (InvoicePeriodLock.Lease lease = invoicePeriodLock.acquire(job.getMonth(), job.getYear())) {
+            InvoiceGenerationReportDTO report = invoiceGenerationEngine.generate(
+                    job.getMonth(), job.getYear(), job.getMode(), job);
+            List<InvoiceSummary> invoices = invoiceRepository.getInvoiceSummary(job.getMonth(), job.getYear());
+            job.succeed(report, invoices);
+        } catch (Exception e) {
+            log.error("Lỗi job tạo hóa đơn {}/{}: {}", job.getMonth(), job.getYear(), e.getMessage());
+            job.fail(e.getMessage());
+        } finally {
+            runningByPeriod.remove(periodKey(job.getMonth(), job.getYear()), job);
+        }
+    }
+
+    private void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private static String periodKey(int month, int year) {
+        return month + "/" + year;
+    }
+}
@@ -0,0 +1,18 @@
+package itep.software.bluemoon.service.billing;
+
+/**
+ * Nhận tiến độ tạo hóa đơn từ engine; các phương thức có thể được gọi đồng thời từ nhiều tòa nhà
+ */
+public interface GenerationProgress {
+    GenerationProgress NONE = new GenerationProgress() {
+    };
+
+    default void started(int apartmentCount) {
+    }
+
+    default void processed(int apartmentCount) {
+    }
+
+    default void error(String message) {
+    }
+}
@@ -0,0 +1,191 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceStatusAggregate;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.model.DTO.accounting.AccountingDashboardResponseDTO;
+import itep.software.bluemoon.model.DTO.accounting.InvoiceAggregateRebuildDTO;
+import itep.software.bluemoon.model.DTO.accounting.InvoiceAggregateRebuildDTO.StatusAggregateDTO;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import itep.software.bluemoon.repository.InvoiceStatusAggregateRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Số hóa đơn và tổng tiền theo trạng thái (bảng invoice_status_aggregate) để dashboard không phải quét bảng invoice.
+ * Mọi chỗ ghi hóa đơn hàng loạt gọi add/remove/move trong chính transaction đó nên bảng tổng hợp commit hoặc rollback cùng hóa đơn.
+ * rebuild() tính lại từ đầu để đối chiếu. Mỗi thay đổi phát kèm một InvoiceChangeEvent cho dashboard trực tiếp
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceAggregateStore {
+    private final InvoiceStatusAggregateRepository aggregateRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public record Totals(long count, BigDecimal amount) {
+        public static final Totals ZERO = new Totals(0, BigDecimal.ZERO);
+
+        // Dòng [số hóa đơn, tổng tiền] từ các câu truy vấn gộp
+        public static Totals of(Object count, Object amount) {
+            return new Totals(((Number) count).longValue(), amount == null ? BigDecimal.ZERO : (BigDecimal) amount);
+        }
+
+        public Totals plus(Totals other) {
+            return new Totals(count + other.count, amount.add(other.amount));
+        }
+
+        public Totals negate() {
+            return new Totals(-count, amount.negate());
+        }
+
+        boolean isZero() {
+            return count == 0 && amount.signum() == 0;
+        }
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void added(List<Invoice> invoices) {
+        Map<InvoiceStatus, Totals> deltas = new EnumMap<>(InvoiceStatus.class);
+        for (Invoice invoice : invoices) {
+            BigDecimal amount = invoice.getTotalAmount() == null ? BigDecimal.ZERO : invoice.getTotalAmount();
+            deltas.merge(invoice.getStatus(), new Totals(1, amount), Totals::plus);
+        }
+        apply(deltas);
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void removed(InvoiceStatus status, Totals totals) {
+        apply(Map.of(status, totals.negate()));
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void moved(InvoiceStatus from, InvoiceStatus to, Totals totals) {
+        Map<InvoiceStatus, Totals> deltas = new EnumMap<>(InvoiceStatus.class);
+        deltas.put(from, totals.negate());
+        deltas.merge(to, totals, Totals::plus);
+        apply(deltas);
+    }
+
+    // Cập nhật theo thứ tự enum để hai transaction cùng đụng nhiều trạng thái không khóa chéo nhau
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void apply(Map<InvoiceStatus, Totals> deltas) {
+        Map<InvoiceStatus, Totals> applied = new EnumMap<>(InvoiceStatus.class);
+        for (Map.Entry<InvoiceStatus, Totals> delta : new EnumMap<>(deltas).entrySet()) {
+            Totals totals = delta.getValue();
+            if (!totals.isZero()) {
+                aggregateRepository.addDelta(delta.getKey().name(), totals.count(), totals.amount());
+                applied.put(delta.getKey(), totals);
+            }
+        }
+        if (!applied.isEmpty()) {
+            eventPublisher.publishEvent(new InvoiceChangeEvent(applied, Set.of()));
+        }
+    }
+
+    // Một câu đọc trên bảng vài dòng, trạng thái chưa có dòng là 0
+    public Map<InvoiceStatus, Totals> snapshot() {
+        Map<InvoiceStatus, Totals> totals = new EnumMap<>(InvoiceStatus.class);
+        for (InvoiceStatus status : InvoiceStatus.values()) {
+            totals.put(status, Totals.ZERO);
+        }
+        for (InvoiceStatusAggregate row : aggregateRepository.findAll()) {
+            totals.put(row.getStatus(), new Totals(row.getInvoiceCount(), row.getTotalAmount()));
+        }
+        return totals;
+    }
+
+    // Bốn chỉ số của dashboard kế toán từ snapshot()
+    public AccountingDashboardResponseDTO dashboardMetrics() {
+        Map<InvoiceStatus, Totals> totals = snapshot();
+
+        long totalInvoices = 0;
+        for (Totals status : totals.values()) {
+            totalInvoices += status.count();
+        }
+
+        return AccountingDashboardResponseDTO.builder()
+                .revenue(toMetric(totals.get(InvoiceStatus.PAID)))
+                .receivable(toMetric(totals.get(InvoiceStatus.UNPAID)))
+                .pending(toMetric(totals.get(InvoiceStatus.PENDING)))
+                .totalInvoices(totalInvoices)
+                .build();
+    }
+
+    public static AccountingDashboardResponseDTO.DashboardMetricDTO toMetric(Totals totals) {
+        return AccountingDashboardResponseDTO.DashboardMetricDTO.builder()
+                .totalAmount(totals.amount())
+                .invoiceCount(totals.count())
+                .build();
+    }
+
+    public InvoiceAggregateRebuildDTO rebuild() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            aggregateRepository.lockForRebuild();
+            Map<InvoiceStatus, Totals> stored = snapshot();
+
+            Map<InvoiceStatus, Totals> actual = new EnumMap<>(InvoiceStatus.class);
+            for (Object[] row : invoiceRepository.sumByStatus()) {
+                // [trạng thái, số hóa đơn, tổng tiền]
+                actual.put((InvoiceStatus) row[0], Totals.of(row[1], row[2]));
+            }
+
+            Map<InvoiceStatus, Totals> drifts = new EnumMap<>(InvoiceStatus.class);
+            List<StatusAggregateDTO> statuses = new ArrayList<>();
+            for (InvoiceStatus invoiceStatus : InvoiceStatus.values()) {
+                Totals before = stored.get(invoiceStatus);
+                Totals after = actual.getOrDefault(invoiceStatus, Totals.ZERO);
+                aggregateRepository.replace(invoiceStatus.name(), after.count(), after.amount());
+                if (before.count() != after.count() || before.amount().compareTo(after.amount()) != 0) {
+                    drifts.put(invoiceStatus, after.plus(before.negate()));
+                    log.warn("Invoice aggregate drift for {}: stored {} / {}, actual {} / {}", invoiceStatus,
+                            before.count(), before.amount(), after.count(), after.amount());
+                }
+                statuses.add(StatusAggregateDTO.builder()
+                        .status(invoiceStatus)
+                        .storedCount(before.count())
+                        .storedAmount(before.amount())
+                        .invoiceCount(after.count())
+                        .totalAmount(after.amount())
+                        .build());
+            }
+
+            if (!drifts.isEmpty()) {
+                eventPublisher.publishEvent(new InvoiceChangeEvent(drifts, Set.of()));
+            }
+
+            return InvoiceAggregateRebuildDTO.builder()
+                    .rebuiltAt(LocalDateTime.now())
+                    .driftDetected(!drifts.isEmpty())
+                    .statuses(statuses)
+                    .build();
+        });
+    }
+
+    // Lần đầu chạy trên dữ liệu có sẵn: bảng tổng hợp còn trống thì dựng từ bảng invoice
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (aggregateRepository.count() == 0) {
+            InvoiceAggregateRebuildDTO result = rebuild();
+            log.info("Initialized invoice aggregates for {} statuses", result.getStatuses().size());
+        }
+    }
+}
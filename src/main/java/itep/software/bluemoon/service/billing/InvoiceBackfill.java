@@ -0,0 +1,162 @@
+package itep.software.bluemoon.service.billing;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.ExtraFee;
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.model.DTO.accounting.generation.GenerationJobDTO;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceBackfillReportDTO;
+import itep.software.bluemoon.repository.ApartmentRepository;
+import itep.software.bluemoon.repository.ExtraFeeRepository;
+import itep.software.bluemoon.repository.ServiceTypeRepository;
+import itep.software.bluemoon.repository.VehicleRepository;
+import itep.software.bluemoon.service.billing.calculator.BillingInput;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tạo hóa đơn cho một khoảng nhiều tháng (ví dụ khi nhận thêm tòa nhà mới). Căn hộ, loại dịch vụ, số xe
+ * và phí khác chưa tính tiền được nạp một lần; mỗi tháng dùng bảng giá của kỳ đó (TariffCache)
+ * và chỉ các phí khác phát sinh trong tháng đó, nên các tháng độc lập với nhau và được chạy song song
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceBackfill {
+    private final ApartmentRepository apartmentRepository;
+    private final ServiceTypeRepository serviceTypeRepository;
+    private final TariffCache tariffCache;
+    private final VehicleRepository vehicleRepository;
+    private final ExtraFeeRepository extraFeeRepository;
+    private final InvoiceCalculator invoiceCalculator;
+    private final GenerationJobManager generationJobManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${bluemoon.invoice.backfill.parallelism:3}")
+    private int parallelism;
+
+    @Value("${bluemoon.invoice.backfill.max-months:24}")
+    private int maxMonths;
+
+    public InvoiceBackfillReportDTO run(YearMonth from, YearMonth to, GenerationMode mode) {
+        if (mode == GenerationMode.STREAMING) {
+            throw new RuntimeException("Backfill supports FULL and INCREMENTAL modes only!");
+        }
+        if (from.isAfter(to)) {
+            throw new RuntimeException("Backfill start month must not be after end month!");
+        }
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        if (months.size() > maxMonths) {
+            throw new RuntimeException("Backfill range must not exceed " + maxMonths + " months!");
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        // 1. Dữ liệu dùng chung, nạp một lần cho cả khoảng
+        Map<YearMonth, BillingReference> references = new TransactionTemplate(transactionManager)
+                .execute(status -> loadReferences(months));
+
+        // 2. Các tháng chạy song song, mỗi tháng vẫn chịu ràng buộc một job mỗi kỳ của GenerationJobManager
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<GenerationJobDTO> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<GenerationJob>> futures = new ArrayList<>();
+            for (YearMonth month : months) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return generationJobManager.run(month.getMonthValue(), month.getYear(), mode, references.get(month));
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(await(futures.get(i), months.get(i), mode));
+            }
+        }
+
+        InvoiceBackfillReportDTO report = InvoiceBackfillReportDTO.builder()
+                .fromMonth(from.getMonthValue())
+                .fromYear(from.getYear())
+                .toMonth(to.getMonthValue())
+                .toYear(to.getYear())
+                .mode(mode)
+                .status(overallStatus(results))
+                .startedAt(startedAt)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .invoiceCount(results.stream().filter(r -> r.getReport() != null).mapToInt(r -> r.getReport().getInvoiceCount()).sum())
+                .months(results)
+                .build();
+        log.info("Backfilled {} invoices for {} - {} in {} ms ({} months, status {})",
+                report.getInvoiceCount(), from, to, report.getDurationMs(), months.size(), report.getStatus());
+        return report;
+    }
+
+    private Map<YearMonth, BillingReference> loadReferences(List<YearMonth> months) {
+        List<Apartment> apartments = apartmentRepository.findBillableApartments();
+        BillingPlan plan = invoiceCalculator.plan(serviceTypeRepository.findAll());
+        VehicleCountTable vehicleCounts = VehicleCountTable.of(
+                plan.needs(BillingInput.VEHICLE_COUNTS) ? vehicleRepository.countByApartmentAndType() : List.of());
+        Map<YearMonth, List<ExtraFee>> feesByMonth = !plan.needs(BillingInput.EXTRA_FEES) ? Map.of()
+                : extraFeeRepository.findUnbilledForBillableApartments()
+                        .stream()
+                        .collect(Collectors.groupingBy(fee -> YearMonth.from(fee.getFeeDate())));
+
+        return months.stream().collect(Collectors.toMap(month -> month, month -> {
+            Map<UUID, List<ExtraFee>> extraFees = feesByMonth.getOrDefault(month, List.of())
+                    .stream()
+                    .collect(Collectors.groupingBy(fee -> fee.getApartment().getId()));
+            return new BillingReference(apartments, plan, tariffCache.forPeriod(month), vehicleCounts, extraFees);
+        }));
+    }
+
+    private GenerationJobDTO await(Future<GenerationJob> future, YearMonth month, GenerationMode mode) {
+        try {
+            GenerationJobDTO result = future.get().toDTO();
+            result.setInvoices(null);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Invoice backfill was interrupted!");
+        } catch (ExecutionException e) {
+            // Tháng đang có job khác chạy: ghi nhận lỗi của riêng tháng đó
+            return GenerationJobDTO.builder()
+                    .month(month.getMonthValue())
+                    .year(month.getYear())
+                    .mode(mode)
+                    .status(GenerationStatus.FAILED)
+                    .errors(List.of(e.getCause().getMessage()))
+                    .build();
+        }
+    }
+
+    private GenerationStatus overallStatus(List<GenerationJobDTO> results) {
+        if (results.stream().allMatch(r -> r.getStatus() == GenerationStatus.FAILED)) return GenerationStatus.FAILED;
+        if (results.stream().allMatch(r -> r.getStatus() == GenerationStatus.SUCCESS)) return GenerationStatus.SUCCESS;
+        return GenerationStatus.PARTIAL;
+    }
+}
@@ -0,0 +1,73 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.repository.ExtraFeeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bước tính và lưu một nhóm căn hộ, dùng chung cho lượt tạo theo tòa nhà và theo lô:
+ * căn hộ lỗi được ghi nhận rồi bỏ qua, hóa đơn không phát sinh tiền không được lưu
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceBatch {
+    private final InvoiceCalculator invoiceCalculator;
+    private final InvoiceBulkWriter invoiceBulkWriter;
+    private final ExtraFeeRepository extraFeeRepository;
+
+    public Built build(List<Apartment> apartments, BillingContext context, GenerationProgress progress) {
+        List<Invoice> invoices = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (Apartment apartment : apartments) {
+            try {
+                Invoice invoice = invoiceCalculator.buildInvoice(apartment, context);
+                invoice.setInputFingerprint(context.getFingerprint(apartment.getId()));
+                // Chỉ lưu hóa đơn nếu có phát sinh tiền
+                if (invoice.getTotalAmount().compareTo(BigDecimal.ZERO) > 0) {
+                    invoices.add(invoice);
+                }
+            } catch (Exception e) {
+                log.error("Lỗi tạo hóa đơn căn hộ {}: {}", apartment.getRoomNumber(), e.getMessage());
+                String error = "P." + apartment.getRoomNumber() + ": " + e.getMessage();
+                errors.add(error);
+                progress.error(error);
+            }
+        }
+        return new Built(invoices, errors);
+    }
+
+    // Phải được gọi bên trong transaction của bên gọi
+    public void persist(List<Invoice> invoices) {
+        invoiceBulkWriter.insert(invoices);
+        markExtraFeesBilled(invoices);
+    }
+
+    // Một câu UPDATE cho các phí đã nằm trong các hóa đơn vừa lưu
+    private void markExtraFeesBilled(List<Invoice> invoices) {
+        List<UUID> feeIds = invoices.stream()
+            .flatMap(inv -> inv.getDetails().stream())
+            .filter(d -> d.getServiceType().getCode() == ServiceCode.OTHER && d.getReferenceId() != null)
+            .map(InvoiceDetail::getReferenceId)
+            .collect(Collectors.toList());
+
+        if (!feeIds.isEmpty()) {
+            extraFeeRepository.updateStatusByIds(true, feeIds);
+        }
+    }
+
+    public record Built(List<Invoice> invoices, List<String> errors) {
+    }
+}
@@ -0,0 +1,135 @@
+package itep.software.bluemoon.service.billing;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Ghi hóa đơn vừa tạo bằng câu INSERT nhiều dòng thay vì persist từng entity qua JPA.
+ * Chạy trong transaction hiện tại (JdbcTemplate dùng chung connection với JpaTransactionManager),
+ * bảng tổng hợp theo trạng thái và doanh thu theo kỳ được cộng dồn trong cùng transaction đó
+ */
+@Component
+@RequiredArgsConstructor
+public class InvoiceBulkWriter {
+    private static final String INVOICE_INSERT = "INSERT INTO invoice " +
+            "(id, apartment_id, month, year, total_amount, status, paid_amount, overdue_date, input_fingerprint, created_date, last_modified_date) VALUES ";
+    private static final String INVOICE_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DETAIL_INSERT = "INSERT INTO invoice_detail " +
+            "(id, invoice_id, service_type_id, quantity, unit_price, amount, usage_record_id, reference_id, description, line_items) VALUES ";
+    private static final String DETAIL_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // PostgreSQL giới hạn 32767 tham số cho một câu lệnh, mỗi dòng dùng tối đa 11 tham số
+    private static final int MAX_ROWS_PER_STATEMENT = 2900;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InvoiceAggregateStore invoiceAggregateStore;
+    private final RevenueRollupStore revenueRollupStore;
+
+    @Value("${bluemoon.invoice.bulk-insert.rows-per-statement:500}")
+    private int rowsPerStatement = 500;
+
+    // Trả về số dòng đã ghi (hóa đơn + chi tiết)
+    public int insert(List<Invoice> invoices) {
+        if (invoices.isEmpty()) return 0;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<InvoiceDetail> details = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            if (invoice.getId() == null) invoice.setId(UUID.randomUUID());
+            invoice.setCreatedDate(now);
+            invoice.setLastModifiedDate(now);
+            for (InvoiceDetail detail : invoice.getDetails()) {
+                if (detail.getId() == null) detail.setId(UUID.randomUUID());
+                details.add(detail);
+            }
+        }
+
+        int rows = 0;
+        for (List<Invoice> chunk : chunks(invoices)) {
+            rows += jdbcTemplate.update(insertSql(INVOICE_INSERT, INVOICE_ROW, chunk.size()), ps -> {
+                int i = 1;
+                for (Invoice invoice : chunk) {
+                    i = bindInvoice(ps, i, invoice);
+                }
+            });
+        }
+        for (List<InvoiceDetail> chunk : chunks(details)) {
+            rows += jdbcTemplate.update(insertSql(DETAIL_INSERT, DETAIL_ROW, chunk.size()), ps -> {
+                int i = 1;
+                for (InvoiceDetail detail : chunk) {
+                    i = bindDetail(ps, i, detail);
+                }
+            });
+        }
+        invoiceAggregateStore.added(invoices);
+        revenueRollupStore.added(invoices);
+        return rows;
+    }
+
+    private int bindInvoice(PreparedStatement ps, int i, Invoice invoice) throws SQLException {
+        ps.setObject(i++, invoice.getId());
+        ps.setObject(i++, invoice.getApartment().getId());
+        ps.setInt(i++, invoice.getMonth());
+        ps.setInt(i++, invoice.getYear());
+        ps.setBigDecimal(i++, invoice.getTotalAmount());
+        ps.setString(i++, invoice.getStatus().name());
+        ps.setBigDecimal(i++, invoice.getPaidAmount());
+        ps.setTimestamp(i++, toTimestamp(invoice.getOverdueDate()));
+        ps.setString(i++, invoice.getInputFingerprint());
+        ps.setTimestamp(i++, toTimestamp(invoice.getCreatedDate()));
+        ps.setTimestamp(i++, toTimestamp(invoice.getLastModifiedDate()));
+        return i;
+    }
+
+    private int bindDetail(PreparedStatement ps, int i, InvoiceDetail detail) throws SQLException {
+        ps.setObject(i++, detail.getId());
+        ps.setObject(i++, detail.getInvoice().getId());
+        ps.setObject(i++, detail.getServiceType().getId());
+        ps.setBigDecimal(i++, detail.getQuantity());
+        ps.setBigDecimal(i++, detail.getUnitPrice());
+        ps.setBigDecimal(i++, detail.getAmount());
+        ps.setObject(i++, detail.getUsageRecord() != null ? detail.getUsageRecord().getId() : null, Types.OTHER);
+        ps.setObject(i++, detail.getReferenceId(), Types.OTHER);
+        ps.setString(i++, detail.getDescription());
+        // Cột jsonb: gửi dạng OTHER để PostgreSQL tự ép kiểu
+        ps.setObject(i++, detail.getLineItems(), Types.OTHER);
+        return i;
+    }
+
+    private <T> List<List<T>> chunks(List<T> rows) {
+        int size = Math.min(MAX_ROWS_PER_STATEMENT, Math.max(1, rowsPerStatement));
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += size) {
+            chunks.add(rows.subList(from, Math.min(rows.size(), from + size)));
+        }
+        return chunks;
+    }
+
+    private static String insertSql(String insert, String row, int rowCount) {
+        StringBuilder sql = new StringBuilder(insert.length() + (row.length() + 2) * rowCount);
+        sql.append(insert);
+        for (int r = 0; r < rowCount; r++) {
+            if (r > 0) sql.append(", ");
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime value) {
+        return value == null ? null : Timestamp.valueOf(value);
+    }
+}
@@ -0,0 +1,71 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.service.billing.calculator.ServiceCalculator;
+import itep.software.bluemoon.util.Vnd;
+
+/**
+ * Tính hóa đơn cho một căn hộ bằng các ServiceCalculator trong BillingPlan của lượt chạy.
+ * Không tự lưu hóa đơn, việc lưu do InvoiceGenerationEngine đảm nhận
+ */
+@Component
+public class InvoiceCalculator {
+    private final Map<ServiceCode, ServiceCalculator> calculators = new EnumMap<>(ServiceCode.class);
+
+    public InvoiceCalculator(List<ServiceCalculator> calculators) {
+        for (ServiceCalculator calculator : calculators) {
+            if (this.calculators.putIfAbsent(calculator.code(), calculator) != null) {
+                throw new RuntimeException("More than one calculator registered for service " + calculator.code());
+            }
+        }
+    }
+
+    // Dựng một lần mỗi lượt chạy, trước khi nạp dữ liệu gom
+    public BillingPlan plan(List<ServiceType> serviceTypes) {
+        return BillingPlan.of(serviceTypes, calculators);
+    }
+
+    public Invoice buildInvoice(Apartment apartment, BillingContext context) {
+        Invoice invoice = Invoice.builder()
+                .apartment(apartment)
+                .month(context.getMonth())
+                .year(context.getYear())
+                .totalAmount(BigDecimal.ZERO)
+                .status(InvoiceStatus.PENDING)
+                .paidAmount(BigDecimal.ZERO)
+                .details(new ArrayList<>())
+                .build();
+
+        for (BillingPlan.Step step : context.getPlan().steps()) {
+            step.calculator().calculate(invoice, apartment, step.type(), context);
+        }
+
+        Vnd total = Vnd.ZERO;
+        for (InvoiceDetail detail : invoice.getDetails()) {
+            total = total.plus(Vnd.of(detail.getAmount()));
+        }
+        invoice.setTotalAmount(total.toBigDecimal());
+        return invoice;
+    }
+
+    // Số tiền một dịch vụ theo đúng công thức của calculator nhưng không dựng InvoiceDetail hay line item,
+    // dùng khi mô phỏng bảng giá trên nhiều kỳ. usage là chỉ số tiêu thụ điện/nước (null nếu không có)
+    public Vnd serviceAmount(ServiceCode code, Apartment apartment, BigDecimal usage,
+                             VehicleCountTable vehicleCounts, TariffSnapshot tariffs) {
+        ServiceCalculator calculator = calculators.get(code);
+        return calculator == null ? Vnd.ZERO : calculator.amount(apartment, usage, vehicleCounts, tariffs);
+    }
+}
@@ -0,0 +1,15 @@
+package itep.software.bluemoon.service.billing;
+
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.Set;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+
+/**
+ * Phát trong transaction ghi hóa đơn mỗi khi bảng tổng hợp thay đổi; bên nghe dùng @TransactionalEventListener
+ * để chỉ nhận thay đổi đã commit.
+ * statusDeltas: số hóa đơn/tổng tiền cộng thêm theo trạng thái; periods: kỳ hóa đơn có doanh thu thay đổi
+ */
+public record InvoiceChangeEvent(Map<InvoiceStatus, InvoiceAggregateStore.Totals> statusDeltas, Set<YearMonth> periods) {
+}
@@ -0,0 +1,368 @@
+package itep.software.bluemoon.service.billing;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.Building;
+import itep.software.bluemoon.entity.accounting.ExtraFee;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceGenerationCheckpoint;
+import itep.software.bluemoon.entity.accounting.UsageRecord;
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO.PartitionReportDTO;
+import itep.software.bluemoon.repository.ApartmentRepository;
+import itep.software.bluemoon.repository.ExtraFeeRepository;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.InvoiceGenerationCheckpointRepository;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import itep.software.bluemoon.repository.ServiceTypeRepository;
+import itep.software.bluemoon.repository.UsageRecordRepository;
+import itep.software.bluemoon.repository.VehicleRepository;
+import itep.software.bluemoon.service.billing.calculator.BillingInput;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tạo hóa đơn theo từng tòa nhà: mỗi tòa được tính song song và lưu trong một transaction riêng
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceGenerationEngine {
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceDetailRepository invoiceDetailRepository;
+    private final ApartmentRepository apartmentRepository;
+    private final ServiceTypeRepository serviceTypeRepository;
+    private final TariffCache tariffCache;
+    private final UsageRecordRepository usageRecordRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ExtraFeeRepository extraFeeRepository;
+    private final InvoiceCalculator invoiceCalculator;
+    private final InvoiceBatch invoiceBatch;
+    private final PendingInvoiceTeardown pendingInvoiceTeardown;
+    private final ChunkedInvoiceGenerator chunkedInvoiceGenerator;
+    private final InvoiceGenerationCheckpointRepository checkpointRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<String, InvoiceGenerationReportDTO> lastReports = new ConcurrentHashMap<>();
+
+    @Value("${bluemoon.invoice.generation.parallelism:4}")
+    private int parallelism;
+
+    public InvoiceGenerationReportDTO generate(int month, int year, GenerationMode mode) {
+        return generate(month, year, mode, GenerationProgress.NONE);
+    }
+
+    public InvoiceGenerationReportDTO generate(int month, int year, GenerationMode mode, GenerationProgress progress) {
+        if (mode == GenerationMode.STREAMING) {
+            InvoiceGenerationReportDTO report = chunkedInvoiceGenerator.generate(month, year, progress);
+            lastReports.put(periodKey(month, year), report);
+            return report;
+        }
+        return generate(month, year, mode, progress, null);
+    }
+
+    // shared != null: dùng dữ liệu tham chiếu đã nạp sẵn (backfill), chỉ nạp chỉ số điện nước của kỳ
+    public InvoiceGenerationReportDTO generate(int month, int year, GenerationMode mode, GenerationProgress progress,
+                                               BillingReference shared) {
+        if (mode == GenerationMode.STREAMING) {
+            throw new RuntimeException("Streaming generation does not accept shared reference data!");
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        // 1. Xác định căn hộ cần tạo lại, dọn hóa đơn PENDING cũ của chúng (transaction riêng)
+        GenerationPlan plan = newTransaction().execute(status -> prepare(month, year, mode,
+                shared != null ? shared : loadReference(month, year)));
+        BillingContext context = plan.context();
+        progress.started(context.getApartments().size());
+
+        // 2. Chia căn hộ theo tòa nhà
+        Map<UUID, List<Apartment>> partitions = context.getApartments().stream()
+                .collect(Collectors.groupingBy(a -> a.getBuilding().getId(), LinkedHashMap::new, Collectors.toList()));
+
+        // 3. Tính và lưu từng tòa song song
+        Set<UUID> persisted = ConcurrentHashMap.newKeySet();
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<PartitionReportDTO> partitionReports = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<PartitionReportDTO>> futures = new ArrayList<>();
+            for (List<Apartment> partition : partitions.values()) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return runPartition(partition, context, persisted, progress);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<PartitionReportDTO> future : futures) {
+                partitionReports.add(await(future));
+            }
+        }
+
+        InvoiceGenerationReportDTO report = InvoiceGenerationReportDTO.builder()
+                .month(month)
+                .year(year)
+                .mode(mode)
+                .status(overallStatus(partitionReports))
+                .startedAt(startedAt)
+                .durationMs(elapsedMillis(start))
+                .apartmentCount(context.getApartments().size())
+                .invoiceCount(partitionReports.stream().mapToInt(PartitionReportDTO::getInvoiceCount).sum())
+                .failedApartmentCount(partitionReports.stream().mapToInt(p -> p.getErrors().size()).sum())
+                .addedCount((int) persisted.stream().filter(id -> !plan.previous().contains(id)).count())
+                .changedCount((int) persisted.stream().filter(plan.previous()::contains).count())
+                .unchangedCount(plan.unchanged())
+                .removedCount((int) plan.deleted().stream().filter(id -> !persisted.contains(id)).count())
+                .partitions(partitionReports)
+                .build();
+
+        if (report.getStatus() != GenerationStatus.SUCCESS) {
+            newTransaction().executeWithoutResult(status -> recordIncomplete(report));
+        }
+        lastReports.put(periodKey(month, year), report);
+        log.info("Generated {} invoices for {}/{} in {} ms ({} mode, {} buildings, {} unchanged, status {})",
+                report.getInvoiceCount(), month, year, report.getDurationMs(), mode, partitionReports.size(),
+                report.getUnchangedCount(), report.getStatus());
+        return report;
+    }
+
+    public InvoiceGenerationReportDTO getLastReport(int month, int year) {
+        return lastReports.get(periodKey(month, year));
+    }
+
+    // Dữ liệu tham chiếu hiện tại với bảng giá của kỳ được tính tiền; chỉ nạp dữ liệu gom mà kế hoạch cần
+    private BillingReference loadReference(int month, int year) {
+        BillingPlan plan = invoiceCalculator.plan(serviceTypeRepository.findAll());
+        return new BillingReference(
+                apartmentRepository.findBillableApartments(),
+                plan,
+                tariffCache.forPeriod(month, year),
+                VehicleCountTable.of(plan.needs(BillingInput.VEHICLE_COUNTS) ? vehicleRepository.countByApartmentAndType() : List.of()),
+                plan.needs(BillingInput.EXTRA_FEES) ? loadUnbilledExtraFees() : Map.of());
+    }
+
+    private GenerationPlan prepare(int month, int year, GenerationMode mode, BillingReference shared) {
+        // Kiểm tra xem đã có hóa đơn chính thức chưa
+        boolean hasOfficialInvoices = invoiceRepository.existsByMonthAndYearAndStatusNot(
+                month, year, InvoiceStatus.PENDING);
+        if (hasOfficialInvoices) {
+            throw new RuntimeException("This month's bill has been finalized and cannot be re-generated!");
+        }
+
+        // Hóa đơn PENDING hiện có theo căn hộ, cùng các phí khác đã gắn vào chúng
+        Map<UUID, UUID> pendingInvoiceIds = new HashMap<>();
+        Map<UUID, String> pendingFingerprints = new HashMap<>();
+        for (Object[] row : invoiceRepository.findFingerprintsByMonthAndYearAndStatus(month, year, InvoiceStatus.PENDING)) {
+            pendingInvoiceIds.put((UUID) row[1], (UUID) row[0]);
+            if (row[2] != null) {
+                pendingFingerprints.put((UUID) row[1], (String) row[2]);
+            }
+        }
+        Map<UUID, List<UUID>> attachedFeeIds = invoiceDetailRepository
+            .findReferenceIdsByPeriod(month, year, InvoiceStatus.PENDING, ServiceCode.OTHER)
+            .stream()
+            .collect(Collectors.groupingBy(r -> (UUID) r[0], Collectors.mapping(r -> (UUID) r[1], Collectors.toList())));
+
+        BillingContext reference = BillingContext.builder()
+                .month(month)
+                .year(year)
+                .apartments(List.of())
+                .plan(shared.plan())
+                .tariffs(shared.tariffs())
+                .usage(loadUsage(shared.plan(), month, year))
+                .vehicleCounts(shared.vehicleCounts())
+                .extraFees(shared.extraFees())
+                .fingerprints(Map.of())
+                .build();
+
+        // So dấu vân tay: chế độ INCREMENTAL bỏ qua căn hộ có dữ liệu đầu vào không đổi
+        List<Apartment> toGenerate = new ArrayList<>();
+        Map<UUID, String> fingerprints = new HashMap<>();
+        Set<UUID> unchanged = new HashSet<>();
+        for (Apartment apartment : shared.apartments()) {
+            UUID apartmentId = apartment.getId();
+            Set<UUID> feeIds = new HashSet<>(attachedFeeIds.getOrDefault(apartmentId, List.of()));
+            reference.getExtraFees(apartmentId).forEach(fee -> feeIds.add(fee.getId()));
+
+            String fingerprint = BillingFingerprint.of(apartment, reference, feeIds);
+            if (mode == GenerationMode.INCREMENTAL && fingerprint.equals(pendingFingerprints.get(apartmentId))) {
+                unchanged.add(apartmentId);
+                continue;
+            }
+            fingerprints.put(apartmentId, fingerprint);
+            toGenerate.add(apartment);
+        }
+
+        // Xóa hóa đơn PENDING của căn hộ được tạo lại hoặc không còn cần tính tiền
+        List<UUID> staleApartmentIds = pendingInvoiceIds.keySet().stream()
+            .filter(id -> !unchanged.contains(id))
+            .collect(Collectors.toList());
+        List<UUID> releasedFeeIds = staleApartmentIds.stream()
+            .flatMap(id -> attachedFeeIds.getOrDefault(id, List.of()).stream())
+            .collect(Collectors.toList());
+        pendingInvoiceTeardown.deleteCheckpoint(month, year);
+        if (unchanged.isEmpty()) {
+            pendingInvoiceTeardown.deletePeriod(month, year);
+        } else {
+            pendingInvoiceTeardown.deleteInvoices(staleApartmentIds.stream().map(pendingInvoiceIds::get).collect(Collectors.toList()), releasedFeeIds);
+        }
+
+        // Phí đã gắn vào hóa đơn vừa xóa được tính lại cùng các phí chưa tính tiền
+        BillingContext context = reference.toBuilder()
+                .apartments(toGenerate)
+                .fingerprints(fingerprints)
+                .extraFees(releasedFeeIds.isEmpty() || !shared.plan().needs(BillingInput.EXTRA_FEES)
+                        ? shared.extraFees() : withReleasedFees(shared.extraFees(), releasedFeeIds))
+                .build();
+        return new GenerationPlan(context, pendingInvoiceIds.keySet(), new HashSet<>(staleApartmentIds), unchanged.size());
+    }
+
+    private PartitionReportDTO runPartition(List<Apartment> apartments, BillingContext context, Set<UUID> persisted,
+                                            GenerationProgress progress) {
+        Building building = apartments.get(0).getBuilding();
+        long start = System.nanoTime();
+        long[] computeNanos = new long[1];
+        List<Invoice> invoices = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        GenerationStatus status;
+
+        try {
+            newTransaction().executeWithoutResult(tx -> {
+                InvoiceBatch.Built built = invoiceBatch.build(apartments, context, progress);
+                invoices.addAll(built.invoices());
+                errors.addAll(built.errors());
+                progress.processed(apartments.size());
+                computeNanos[0] = System.nanoTime() - start;
+                invoiceBatch.persist(invoices);
+            });
+            invoices.forEach(inv -> persisted.add(inv.getApartment().getId()));
+            status = errors.isEmpty() ? GenerationStatus.SUCCESS : GenerationStatus.PARTIAL;
+        } catch (Exception e) {
+            log.error("Lỗi lưu hóa đơn tòa {}: {}", building.getName(), e.getMessage());
+            String error = "Building " + building.getName() + " rolled back: " + e.getMessage();
+            errors.add(error);
+            progress.error(error);
+            invoices.clear();
+            status = GenerationStatus.FAILED;
+        }
+
+        long durationNanos = System.nanoTime() - start;
+        return PartitionReportDTO.builder()
+                .buildingId(building.getId())
+                .buildingName(building.getName())
+                .status(status)
+                .apartmentCount(apartments.size())
+                .invoiceCount(invoices.size())
+                .computeMs(TimeUnit.NANOSECONDS.toMillis(computeNanos[0]))
+                .persistMs(TimeUnit.NANOSECONDS.toMillis(durationNanos - computeNanos[0]))
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(durationNanos))
+                .errors(errors)
+                .build();
+    }
+
+
+    // prepare() đã xóa checkpoint của kỳ; tòa nhà lỗi thì ghi lại kết quả để InvoicePublisher từ chối phát hành.
+    // Không có con trỏ nên lượt tạo theo lô sau đó sẽ dọn kỳ và tạo lại từ đầu
+    private void recordIncomplete(InvoiceGenerationReportDTO report) {
+        String errors = report.getPartitions().stream()
+                .flatMap(p -> p.getErrors().stream())
+                .collect(Collectors.joining("; "));
+        checkpointRepository.save(InvoiceGenerationCheckpoint.builder()
+                .month(report.getMonth())
+                .year(report.getYear())
+                .processedCount(report.getApartmentCount())
+                .invoiceCount(report.getInvoiceCount())
+                .chunkCount(report.getPartitions().size())
+                .status(report.getStatus())
+                .errorMessage(errors.length() > 500 ? errors.substring(0, 500) : errors)
+                .build());
+    }
+
+    private Map<UUID, List<ExtraFee>> loadUnbilledExtraFees() {
+        return extraFeeRepository.findUnbilledForBillableApartments()
+            .stream()
+            .collect(Collectors.groupingBy(e -> e.getApartment().getId()));
+    }
+
+    private Map<UUID, List<ExtraFee>> withReleasedFees(Map<UUID, List<ExtraFee>> extraFees, List<UUID> releasedFeeIds) {
+        Map<UUID, List<ExtraFee>> merged = new HashMap<>();
+        extraFees.forEach((apartmentId, fees) -> merged.put(apartmentId, new ArrayList<>(fees)));
+        for (ExtraFee fee : extraFeeRepository.findAllById(releasedFeeIds)) {
+            merged.computeIfAbsent(fee.getApartment().getId(), id -> new ArrayList<>()).add(fee);
+        }
+        return merged;
+    }
+
+    private Map<ServiceCode, Map<UUID, UsageRecord>> loadUsage(BillingPlan plan, int month, int year) {
+        if (plan.usageCodes().isEmpty()) {
+            return Map.of();
+        }
+        return BillingContext.usageOf(usageRecordRepository.findAllByServiceCodesAndMonthAndYear(plan.usageCodes(), month, year));
+    }
+
+    private PartitionReportDTO await(Future<PartitionReportDTO> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Invoice generation was interrupted!");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Invoice generation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private GenerationStatus overallStatus(List<PartitionReportDTO> partitions) {
+        boolean anyFailed = partitions.stream().anyMatch(p -> p.getStatus() == GenerationStatus.FAILED);
+        boolean allFailed = !partitions.isEmpty() && partitions.stream().allMatch(p -> p.getStatus() == GenerationStatus.FAILED);
+        if (allFailed) return GenerationStatus.FAILED;
+        if (anyFailed || partitions.stream().anyMatch(p -> p.getStatus() == GenerationStatus.PARTIAL)) return GenerationStatus.PARTIAL;
+        return GenerationStatus.SUCCESS;
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static String periodKey(int month, int year) {
+        return month + "/" + year;
+    }
+
+    private record GenerationPlan(BillingContext context, Set<UUID> previous, Set<UUID> deleted, int unchanged) {
+    }
+}
@@ -0,0 +1,135 @@
+package itep.software.bluemoon.service.billing;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Khóa một kỳ (tháng, năm) bằng PostgreSQL advisory lock mức session: tạo, phát hành và backfill hóa đơn
+ * của cùng một kỳ chạy tuần tự trên mọi node mà không cần bộ điều phối ngoài.
+ * Lock nằm trên một connection riêng giữ suốt lượt chạy (các transaction của engine dùng connection khác),
+ * và tự nhả khi connection đóng, kể cả khi node chết giữa chừng.
+ * Cũng dùng để bầu leader cho các job định kỳ toàn cụm (tryAcquireJob)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoicePeriodLock {
+    // Tham số thứ nhất của pg_advisory_lock(int, int), tách khóa hóa đơn khỏi các advisory lock khác
+    static final int NAMESPACE = 0x424D0001;
+    // Không gian khóa của các job định kỳ, tham số thứ hai là mã job
+    static final int JOB_NAMESPACE = 0x424D0002;
+
+    private final DataSource dataSource;
+
+    // 0: báo lỗi ngay nếu kỳ đang bị khóa; > 0: xếp hàng chờ tối đa chừng ấy giây
+    @Value("${bluemoon.invoice.lock.wait-seconds:0}")
+    private long waitSeconds;
+
+    @Value("${bluemoon.invoice.lock.poll-millis:500}")
+    private long pollMillis;
+
+    public Lease acquire(int month, int year) {
+        int period = year * 12 + month;
+        String label = month + "/" + year;
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            // Không để connection giữ lock "idle in transaction" suốt lượt chạy
+            connection.setAutoCommit(true);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitSeconds);
+            while (!call(connection, "SELECT pg_try_advisory_lock(?, ?)", NAMESPACE, period)) {
+                if (System.nanoTime() >= deadline) {
+                    throw new RuntimeException("Invoices for " + month + "/" + year
+                            + " are being processed by another request, please try again later!");
+                }
+                Thread.sleep(pollMillis);
+            }
+            return new Lease(connection, NAMESPACE, period, label);
+        } catch (SQLException e) {
+            close(connection);
+            throw new RuntimeException("Cannot lock invoices for " + month + "/" + year + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            close(connection);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the invoice lock of " + month + "/" + year + "!");
+        } catch (RuntimeException e) {
+            close(connection);
+            throw e;
+        }
+    }
+
+    // Leader election không chờ: null nếu node khác đang giữ khóa của job
+    public Lease tryAcquireJob(int jobKey, String jobName) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+            if (!call(connection, "SELECT pg_try_advisory_lock(?, ?)", JOB_NAMESPACE, jobKey)) {
+                close(connection);
+                return null;
+            }
+            return new Lease(connection, JOB_NAMESPACE, jobKey, jobName);
+        } catch (SQLException e) {
+            close(connection);
+            throw new RuntimeException("Cannot lock job " + jobName + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean call(Connection connection, String sql, int namespace, int key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, namespace);
+            statement.setInt(2, key);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Cannot close invoice lock connection: {}", e.getMessage());
+        }
+    }
+
+    public static final class Lease implements AutoCloseable {
+        private final Connection connection;
+        private final int namespace;
+        private final int key;
+        private final String label;
+
+        private Lease(Connection connection, int namespace, int key, String label) {
+            this.connection = connection;
+            this.namespace = namespace;
+            this.key = key;
+            this.label = label;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (!call(connection, "SELECT pg_advisory_unlock(?, ?)", namespace, key)) {
+                    log.warn("Lock of {} was not held when releasing", label);
+                }
+            } catch (SQLException e) {
+                // Đóng connection bên dưới vẫn nhả lock của session
+                log.warn("Cannot release lock of {}: {}", label, e.getMessage());
+            } finally {
+                InvoicePeriodLock.close(connection);
+            }
+        }
+    }
+}
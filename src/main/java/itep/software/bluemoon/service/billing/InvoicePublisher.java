@@ -0,0 +1,85 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.model.DTO.accounting.InvoicePublishResultDTO;
+import itep.software.bluemoon.repository.InvoiceGenerationCheckpointRepository;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Phát hành hóa đơn của một kỳ (PENDING -> UNPAID) bằng một câu UPDATE, có thể giới hạn theo tòa nhà.
+ * Chạy dưới khóa kỳ nên không chen vào giữa một lượt tạo hóa đơn trên bất kỳ node nào
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoicePublisher {
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceGenerationCheckpointRepository checkpointRepository;
+    private final GenerationJobManager generationJobManager;
+    private final InvoicePeriodLock invoicePeriodLock;
+    private final PlatformTransactionManager transactionManager;
+    private final InvoiceAggregateStore invoiceAggregateStore;
+
+    // Hạn thanh toán tính từ ngày phát hành
+    @Value("${bluemoon.invoice.payment-term-days:15}")
+    private int paymentTermDays;
+
+    public InvoicePublishResultDTO publish(int month, int year, UUID buildingId) {
+        if (generationJobManager.isRunning(month, year)) {
+            throw new RuntimeException("Invoice generation for " + month + "/" + year + " is running, please publish after it finishes!");
+        }
+
+        try (InvoicePeriodLock.Lease lease = invoicePeriodLock.acquire(month, year)) {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                // Lượt tạo gần nhất (theo lô hoặc theo tòa nhà) chưa thành công: hóa đơn của kỳ chưa đủ
+                checkpointRepository.findByMonthAndYear(month, year)
+                        .filter(checkpoint -> checkpoint.getStatus() != GenerationStatus.SUCCESS)
+                        .ifPresent(checkpoint -> {
+                            throw new RuntimeException("Invoice generation for " + month + "/" + year + " ended with status "
+                                    + checkpoint.getStatus() + ", please re-run it before publishing!");
+                        });
+
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime overdueDate = LocalDate.now().plusDays(paymentTermDays).atTime(23, 59, 59);
+                // Dưới khóa kỳ không ai khác ghi hóa đơn PENDING của kỳ nên tổng đọc trước đúng bằng phần được UPDATE
+                Object[] pending = invoiceRepository.sumByPeriodAndStatus(month, year, buildingId, InvoiceStatus.PENDING).get(0);
+                int published = buildingId == null
+                        ? invoiceRepository.updateStatusByPeriod(month, year, InvoiceStatus.PENDING, InvoiceStatus.UNPAID, overdueDate, now)
+                        : invoiceRepository.updateStatusByPeriodAndBuilding(month, year, buildingId, InvoiceStatus.PENDING, InvoiceStatus.UNPAID, overdueDate, now);
+                invoiceAggregateStore.moved(InvoiceStatus.PENDING, InvoiceStatus.UNPAID,
+                        new InvoiceAggregateStore.Totals(published, (BigDecimal) pending[1]));
+
+                Map<InvoiceStatus, Long> statusCounts = new EnumMap<>(InvoiceStatus.class);
+                for (Object[] row : invoiceRepository.countByStatusForPeriod(month, year, buildingId)) {
+                    statusCounts.put((InvoiceStatus) row[0], (Long) row[1]);
+                }
+                log.info("Published {} invoices for {}/{} (building {}), overdue at {}", published, month, year,
+                        buildingId != null ? buildingId : "all", overdueDate);
+
+                return InvoicePublishResultDTO.builder()
+                        .month(month)
+                        .year(year)
+                        .buildingId(buildingId)
+                        .publishedCount(published)
+                        .overdueDate(overdueDate)
+                        .statusCounts(statusCounts)
+                        .build();
+            });
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package itep.software.bluemoon.service.billing;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import itep.software.bluemoon.model.DTO.accounting.InvoiceLineItemDTO;
+
+/**
+ * Mã hóa line item (cột jsonb InvoiceDetail.lineItems) bằng JsonGenerator của một ObjectWriter dựng sẵn:
+ * ghi thẳng từng trường, không dựng InvoiceLineItemDTO hay List trung gian, bộ đệm ký tự được tái sử dụng theo luồng.
+ * JSON sinh ra giống hệt writeValueAsString(List&lt;InvoiceLineItemDTO&gt;) nên dữ liệu cũ và mới đọc như nhau
+ */
+@Component
+public class LineItemEncoder {
+    private static final TypeReference<List<InvoiceLineItemDTO>> LINE_ITEMS = new TypeReference<>() {};
+
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final ThreadLocal<Items> buffers = ThreadLocal.withInitial(Items::new);
+
+    public LineItemEncoder(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(LINE_ITEMS);
+        this.reader = objectMapper.readerFor(LINE_ITEMS);
+    }
+
+    // Bộ đệm của luồng hiện tại, đã xóa nội dung lần trước; phải gọi toJson() trước lần begin() kế tiếp
+    public Items begin() {
+        Items items = buffers.get();
+        items.reset();
+        return items;
+    }
+
+    // Chỉ giải mã khi client cần xem chi tiết
+    public List<InvoiceLineItemDTO> decode(String json) {
+        if (json == null || json.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return reader.readValue(json);
+        } catch (IOException e) {
+            throw new RuntimeException("Invalid invoice line items: " + e.getMessage());
+        }
+    }
+
+    public final class Items {
+        private final StringWriter out = new StringWriter(512);
+        private JsonGenerator generator;
+
+        private void reset() {
+            out.getBuffer().setLength(0);
+            generator = null;
+        }
+
+        // Cùng thứ tự trường với InvoiceLineItemDTO
+        public Items add(String description, long quantity, BigDecimal unitPrice, long amount) {
+            try {
+                if (generator == null) {
+                    generator = writer.createGenerator(out);
+                    generator.writeStartArray();
+                }
+                generator.writeStartObject();
+                generator.writeStringField("description", description);
+                generator.writeNumberField("quantity", quantity);
+                if (unitPrice == null) {
+                    generator.writeNullField("unitPrice");
+                } else {
+                    generator.writeNumberField("unitPrice", unitPrice);
+                }
+                generator.writeNumberField("amount", amount);
+                generator.writeEndObject();
+                return this;
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot encode invoice line items: " + e.getMessage());
+            }
+        }
+
+        public String toJson() {
+            if (generator == null) {
+                return "[]";
+            }
+            try {
+                generator.writeEndArray();
+                generator.close();
+                return out.toString();
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot encode invoice line items: " + e.getMessage());
+            } finally {
+                generator = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package itep.software.bluemoon.service.billing;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Định kỳ chuyển hóa đơn UNPAID/PARTIAL đã quá overdueDate sang OVERDUE bằng các câu UPDATE theo lô,
+ * mỗi lô một transaction cùng với phần cộng dồn vào bảng tổng hợp theo trạng thái. Khi chạy nhiều node, chỉ node giữ được advisory lock của job (leader) quét trong lượt đó
+ */
+@Component
+@Slf4j
+public class OverdueSweeper {
+    static final int JOB_KEY = 1;
+    private static final List<String> SWEPT_STATUSES = List.of(InvoiceStatus.UNPAID.name(), InvoiceStatus.PARTIAL.name());
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoicePeriodLock invoicePeriodLock;
+    private final PlatformTransactionManager transactionManager;
+    private final InvoiceAggregateStore invoiceAggregateStore;
+    private final Counter transitioned;
+    private final Timer sweepTimer;
+    private final Counter skipped;
+
+    @Value("${bluemoon.invoice.overdue.batch-size:1000}")
+    private int batchSize;
+
+    // Chặn vòng lặp vô hạn nếu có gì đó liên tục đưa hóa đơn về UNPAID
+    @Value("${bluemoon.invoice.overdue.max-batches:1000}")
+    private int maxBatches;
+
+    public OverdueSweeper(InvoiceRepository invoiceRepository, InvoicePeriodLock invoicePeriodLock,
+                          PlatformTransactionManager transactionManager, InvoiceAggregateStore invoiceAggregateStore,
+                          MeterRegistry meterRegistry) {
+        this.invoiceRepository = invoiceRepository;
+        this.invoicePeriodLock = invoicePeriodLock;
+        this.transactionManager = transactionManager;
+        this.invoiceAggregateStore = invoiceAggregateStore;
+        this.transitioned = Counter.builder("bluemoon.invoice.overdue.transitioned")
+                .description("Invoices moved to OVERDUE by the sweeper")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("bluemoon.invoice.overdue.sweep")
+                .description("Duration of overdue sweeps run by the leader node")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("bluemoon.invoice.overdue.skipped")
+                .description("Sweeps skipped because another node held the sweeper lock")
+                .register(meterRegistry);
+    }
+
+    // cron = "-" để tắt
+    @Scheduled(cron = "${bluemoon.invoice.overdue.cron:0 */15 * * * *}")
+    public void sweep() {
+        try (InvoicePeriodLock.Lease lease = invoicePeriodLock.tryAcquireJob(JOB_KEY, "overdue sweeper")) {
+            if (lease == null) {
+                skipped.increment();
+                log.debug("Overdue sweep skipped, another node is running it");
+                return;
+            }
+            int total = sweepTimer.record(this::sweepBatches);
+            if (total > 0) {
+                log.info("Marked {} invoices as OVERDUE", total);
+            }
+        } catch (Exception e) {
+            log.error("Overdue sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private int sweepBatches() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Cùng một mốc thời gian cho cả lượt để lô sau không quét thêm hóa đơn vừa đến hạn giữa chừng
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Integer updated = template.execute(status -> markBatch(now));
+            int count = updated == null ? 0 : updated;
+            total += count;
+            transitioned.increment(count);
+            if (count < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int markBatch(LocalDateTime now) {
+        Map<InvoiceStatus, InvoiceAggregateStore.Totals> deltas = new EnumMap<>(InvoiceStatus.class);
+        InvoiceAggregateStore.Totals moved = InvoiceAggregateStore.Totals.ZERO;
+        for (Object[] row : invoiceRepository.markOverdueBatch(SWEPT_STATUSES, InvoiceStatus.OVERDUE.name(), now, batchSize)) {
+            // [trạng thái cũ, số hóa đơn, tổng tiền]
+            InvoiceAggregateStore.Totals totals = InvoiceAggregateStore.Totals.of(row[1], row[2]);
+            deltas.put(InvoiceStatus.valueOf((String) row[0]), totals.negate());
+            moved = moved.plus(totals);
+        }
+        deltas.put(InvoiceStatus.OVERDUE, moved);
+        invoiceAggregateStore.apply(deltas);
+        return (int) moved.count();
+    }
+}
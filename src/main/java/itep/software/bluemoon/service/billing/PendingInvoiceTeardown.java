@@ -0,0 +1,74 @@
+package itep.software.bluemoon.service.billing;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.repository.ExtraFeeRepository;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.InvoiceGenerationCheckpointRepository;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Dọn hóa đơn PENDING trước khi tạo lại bằng các câu lệnh hàng loạt, không nạp entity nào.
+ * Phải được gọi bên trong transaction của bên gọi
+ */
+@Component
+@RequiredArgsConstructor
+public class PendingInvoiceTeardown {
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceDetailRepository invoiceDetailRepository;
+    private final ExtraFeeRepository extraFeeRepository;
+    private final InvoiceGenerationCheckpointRepository checkpointRepository;
+    private final InvoiceAggregateStore invoiceAggregateStore;
+    private final RevenueRollupStore revenueRollupStore;
+
+    // Toàn bộ hóa đơn PENDING của kỳ: số câu lệnh không phụ thuộc số căn hộ
+    public void deletePeriod(int month, int year) {
+        Object[] removed = invoiceRepository.sumByPeriodAndStatus(month, year, null, InvoiceStatus.PENDING).get(0);
+        revenueRollupStore.removePeriod(month, year, InvoiceStatus.PENDING);
+        extraFeeRepository.releaseByInvoicePeriod(month, year, InvoiceStatus.PENDING, ServiceCode.OTHER);
+        invoiceDetailRepository.deleteByInvoicePeriod(month, year, InvoiceStatus.PENDING);
+        invoiceRepository.deleteByPeriod(month, year, InvoiceStatus.PENDING);
+        invoiceAggregateStore.removed(InvoiceStatus.PENDING, InvoiceAggregateStore.Totals.of(removed[0], removed[1]));
+    }
+
+    // Tiến độ tạo theo lô không còn đúng sau khi hóa đơn của kỳ được tạo lại bằng cách khác
+    public void deleteCheckpoint(int month, int year) {
+        checkpointRepository.deleteByPeriod(month, year);
+    }
+
+    // Chỉ các hóa đơn chỉ định, chia lô để danh sách IN không quá dài
+    public void deleteInvoices(List<UUID> invoiceIds, List<UUID> releasedFeeIds) {
+        for (List<UUID> chunk : chunks(releasedFeeIds)) {
+            extraFeeRepository.updateStatusByIds(false, chunk);
+        }
+        for (List<UUID> chunk : chunks(invoiceIds)) {
+            Map<InvoiceStatus, InvoiceAggregateStore.Totals> removed = new EnumMap<>(InvoiceStatus.class);
+            for (Object[] row : invoiceRepository.sumByIdsGroupByStatus(chunk)) {
+                removed.put((InvoiceStatus) row[0], InvoiceAggregateStore.Totals.of(row[1], row[2]).negate());
+            }
+            revenueRollupStore.removeInvoices(chunk);
+            invoiceDetailRepository.deleteByInvoiceIds(chunk);
+            invoiceRepository.deleteByIds(chunk);
+            invoiceAggregateStore.apply(removed);
+        }
+    }
+
+    private static List<List<UUID>> chunks(List<UUID> ids) {
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + ID_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,128 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.RevenueRollupRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Doanh thu theo (năm, tháng, tòa nhà, dịch vụ) của kỳ hóa đơn (bảng revenue_rollup) cho biểu đồ dashboard.
+ * Chỉ thêm/xóa hóa đơn và thanh toán làm đổi số liệu; phát hành hay quá hạn giữ nguyên tiền nên không cần cập nhật.
+ * Như InvoiceAggregateStore, các hàm ghi phải chạy trong transaction đang ghi hóa đơn
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RevenueRollupStore {
+    // Cập nhật theo thứ tự khóa cố định để hai transaction không khóa chéo nhau
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingInt(Key::year)
+            .thenComparingInt(Key::month)
+            .thenComparing(Key::buildingId)
+            .thenComparing(Key::serviceCode);
+
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final InvoiceDetailRepository invoiceDetailRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    record Key(int year, int month, UUID buildingId, ServiceCode serviceCode) {}
+
+    record Amounts(BigDecimal total, BigDecimal paid) {
+        Amounts plus(Amounts other) {
+            return new Amounts(total.add(other.total), paid.add(other.paid));
+        }
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void added(List<Invoice> invoices) {
+        Map<Key, Amounts> deltas = new TreeMap<>(KEY_ORDER);
+        for (Invoice invoice : invoices) {
+            UUID buildingId = invoice.getApartment().getBuilding().getId();
+            boolean paid = invoice.getStatus() == InvoiceStatus.PAID;
+            for (InvoiceDetail detail : invoice.getDetails()) {
+                BigDecimal amount = detail.getAmount() == null ? BigDecimal.ZERO : detail.getAmount();
+                Key key = new Key(invoice.getYear(), invoice.getMonth(), buildingId, detail.getServiceType().getCode());
+                deltas.merge(key, new Amounts(amount, paid ? amount : BigDecimal.ZERO), Amounts::plus);
+            }
+        }
+        apply(deltas);
+    }
+
+    // Gọi trước khi xóa chi tiết hóa đơn
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void removePeriod(int month, int year, InvoiceStatus status) {
+        subtract(invoiceDetailRepository.sumRevenueByInvoicePeriod(month, year, status));
+    }
+
+    // Gọi trước khi xóa chi tiết hóa đơn
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void removeInvoices(List<UUID> invoiceIds) {
+        subtract(invoiceDetailRepository.sumRevenueByInvoiceIds(invoiceIds));
+    }
+
+    private void subtract(List<Object[]> rows) {
+        Map<Key, Amounts> deltas = new TreeMap<>(KEY_ORDER);
+        for (Object[] row : rows) {
+            // [năm, tháng, id tòa, mã dịch vụ, tổng tiền, phần đã thanh toán]
+            Key key = new Key(((Number) row[0]).intValue(), ((Number) row[1]).intValue(), (UUID) row[2], (ServiceCode) row[3]);
+            deltas.merge(key, new Amounts(((BigDecimal) row[4]).negate(), ((BigDecimal) row[5]).negate()), Amounts::plus);
+        }
+        apply(deltas);
+    }
+
+    private void apply(Map<Key, Amounts> deltas) {
+        Set<YearMonth> periods = new TreeSet<>();
+        for (Map.Entry<Key, Amounts> delta : deltas.entrySet()) {
+            Key key = delta.getKey();
+            Amounts amounts = delta.getValue();
+            if (amounts.total().signum() == 0 && amounts.paid().signum() == 0) {
+                continue;
+            }
+            revenueRollupRepository.addDelta(UUID.randomUUID(), key.year(), key.month(), key.buildingId(),
+                    key.serviceCode().name(), amounts.total(), amounts.paid());
+            periods.add(YearMonth.of(key.year(), key.month()));
+        }
+        if (!periods.isEmpty()) {
+            eventPublisher.publishEvent(new InvoiceChangeEvent(Map.of(), periods));
+        }
+    }
+
+    // Khóa bảng như InvoiceAggregateStore.rebuild rồi tính lại toàn bộ; trả về số dòng sau khi dựng lại
+    public int rebuild() {
+        Integer rows = new TransactionTemplate(transactionManager).execute(status -> {
+            revenueRollupRepository.lockForRebuild();
+            revenueRollupRepository.deleteAllRows();
+            return revenueRollupRepository.insertFromInvoices();
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (revenueRollupRepository.count() == 0) {
+            log.info("Initialized revenue rollup with {} rows", rebuild());
+        }
+    }
+}
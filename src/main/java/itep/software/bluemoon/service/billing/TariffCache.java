@@ -0,0 +1,60 @@
+package itep.software.bluemoon.service.billing;
+
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.repository.ServicePriceRepository;
+import itep.software.bluemoon.service.billing.TariffSnapshot.Tariff;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bảng giá theo kỳ tính tiền: mỗi (dịch vụ, tháng) dùng bảng giá có hiệu lực giao với tháng đó
+ * (nhiều bảng giá giao nhau thì lấy bảng bắt đầu muộn nhất). Mọi dịch vụ của một tháng được nạp bằng một truy vấn
+ * kèm bậc giá, biên dịch một lần rồi giữ lại; TariffCacheInvalidator xóa cache khi service_price/price_tier thay đổi
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TariffCache {
+    private final ServicePriceRepository servicePriceRepository;
+
+    private final Map<YearMonth, TariffSnapshot> snapshots = new ConcurrentHashMap<>();
+    // Tăng mỗi lần xóa cache: bảng giá nạp trước lần xóa không được đưa vào cache
+    private final AtomicLong generation = new AtomicLong();
+
+    public TariffSnapshot forPeriod(int month, int year) {
+        return forPeriod(YearMonth.of(year, month));
+    }
+
+    public TariffSnapshot forPeriod(YearMonth period) {
+        TariffSnapshot cached = snapshots.get(period);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = generation.get();
+        TariffSnapshot loaded = TariffSnapshot.of(
+                servicePriceRepository.findAllPricesBetween(period.atDay(1), period.atEndOfMonth()));
+        if (generation.get() == loadedAt) {
+            TariffSnapshot raced = snapshots.putIfAbsent(period, loaded);
+            return raced != null ? raced : loaded;
+        }
+        return loaded;
+    }
+
+    public Tariff get(ServiceCode code, YearMonth period) {
+        return forPeriod(period).require(code);
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshots.clear();
+        log.debug("Tariff cache invalidated");
+    }
+}
@@ -0,0 +1,35 @@
+package itep.software.bluemoon.service.billing;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Entity listener của ServicePrice và PriceTier: xóa TariffCache ngay khi ghi và một lần nữa sau khi commit,
+ * để luồng đọc chen giữa hai thời điểm không giữ lại bảng giá cũ
+ */
+@Component
+@RequiredArgsConstructor
+public class TariffCacheInvalidator {
+    private final TariffCache tariffCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onPriceChanged(Object entity) {
+        tariffCache.invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    tariffCache.invalidate();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.PriceTier;
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationRequestDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationRequestDTO.ProposedPriceDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationResultDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationResultDTO.BuildingDeltaDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationResultDTO.ServiceDeltaDTO;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.UsageRecordRepository;
+import itep.software.bluemoon.repository.VehicleRepository;
+import itep.software.bluemoon.util.Vnd;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mô phỏng doanh thu của bảng giá đề xuất trên dữ liệu lịch sử, không ghi gì xuống DB.
+ * Dữ liệu cả khoảng kỳ được nạp bằng 3 câu truy vấn dạng cột, sau đó từng (căn hộ, tháng) được tính lại song song
+ * bằng InvoiceCalculator, cả theo bảng giá đã áp dụng của kỳ (TariffCache) lẫn theo bảng giá đề xuất.
+ * Chỉ các dịch vụ có trong đề xuất được tính lại, các dịch vụ khác giữ nguyên số tiền đã phát hành
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TariffSimulator {
+    // Dịch vụ có bảng giá; phí khác (OTHER) không phụ thuộc bảng giá
+    private static final Set<ServiceCode> PRICED_SERVICES =
+            EnumSet.of(ServiceCode.MANAGEMENT, ServiceCode.PARKING, ServiceCode.ELECTRICITY, ServiceCode.WATER);
+
+    private final InvoiceDetailRepository invoiceDetailRepository;
+    private final UsageRecordRepository usageRecordRepository;
+    private final VehicleRepository vehicleRepository;
+    private final InvoiceCalculator invoiceCalculator;
+    private final TariffCache tariffCache;
+
+    @Value("${bluemoon.tariff.simulation.max-months:120}")
+    private int maxMonths;
+
+    public TariffSimulationResultDTO simulate(TariffSimulationRequestDTO request) {
+        long start = System.nanoTime();
+        int fromPeriod = period(request.getFromMonth(), request.getFromYear());
+        int toPeriod = period(request.getToMonth(), request.getToYear());
+        if (fromPeriod > toPeriod) {
+            throw new RuntimeException("Simulation start period must not be after end period!");
+        }
+        if (toPeriod - fromPeriod + 1 > maxMonths) {
+            throw new RuntimeException("Simulation range must not exceed " + maxMonths + " months!");
+        }
+        TariffSnapshot proposed = TariffSnapshot.of(toServicePrices(request.getPrices()));
+
+        // 1. Số tiền đã phát hành theo (tháng, căn hộ, dịch vụ)
+        Map<BillKey, ApartmentMonth> bills = new HashMap<>();
+        Map<UUID, Apartment> apartments = new HashMap<>();
+        Map<UUID, String> buildingNames = new HashMap<>();
+        for (Object[] row : invoiceDetailRepository.sumAmountByApartmentAndService(fromPeriod, toPeriod, InvoiceStatus.PENDING)) {
+            int period = period((Integer) row[1], (Integer) row[0]);
+            UUID apartmentId = (UUID) row[2];
+            UUID buildingId = (UUID) row[4];
+            Apartment apartment = apartments.computeIfAbsent(apartmentId,
+                    id -> Apartment.builder().id(id).area((BigDecimal) row[3]).build());
+            buildingNames.putIfAbsent(buildingId, (String) row[5]);
+            ApartmentMonth bill = bills.computeIfAbsent(new BillKey(period, apartmentId), k -> new ApartmentMonth(apartment, buildingId));
+            ServiceCode code = (ServiceCode) row[6];
+            if (PRICED_SERVICES.contains(code)) {
+                bill.actual[code.ordinal()] += Vnd.of((BigDecimal) row[7]).dong();
+            }
+        }
+
+        // 2. Chỉ số điện nước của cùng khoảng kỳ; số xe lấy theo hiện tại vì không lưu lịch sử xe
+        for (Object[] row : usageRecordRepository.findQuantitiesByPeriodRange(fromPeriod, toPeriod)) {
+            ApartmentMonth bill = bills.get(new BillKey(period((Integer) row[1], (Integer) row[0]), (UUID) row[2]));
+            if (bill == null) continue;
+            if (row[3] == ServiceCode.ELECTRICITY) bill.electricity = (BigDecimal) row[4];
+            if (row[3] == ServiceCode.WATER) bill.water = (BigDecimal) row[4];
+        }
+        VehicleCountTable vehicleCounts = proposed.contains(ServiceCode.PARKING)
+                ? VehicleCountTable.of(vehicleRepository.countByApartmentAndType())
+                : VehicleCountTable.of(List.of());
+
+        // Bảng giá đã áp dụng của từng kỳ, để tách phần chênh do dữ liệu đầu vào thay đổi khỏi phần do bảng giá mới
+        Map<Integer, TariffSnapshot> applied = new HashMap<>();
+        for (int period = fromPeriod; period <= toPeriod; period++) {
+            applied.put(period, tariffCache.forPeriod(YearMonth.of((period - 1) / 12, (period - 1) % 12 + 1)));
+        }
+
+        // 3. Tính lại song song: mỗi phần tử chỉ ghi vào mảng của chính nó
+        bills.entrySet().parallelStream().forEach(entry -> {
+            ApartmentMonth bill = entry.getValue();
+            TariffSnapshot baseline = applied.get(entry.getKey().period());
+            for (ServiceCode code : PRICED_SERVICES) {
+                int index = code.ordinal();
+                if (!proposed.contains(code)) {
+                    bill.baseline[index] = bill.actual[index];
+                    bill.simulated[index] = bill.actual[index];
+                    continue;
+                }
+                BigDecimal usage = code == ServiceCode.ELECTRICITY ? bill.electricity
+                        : code == ServiceCode.WATER ? bill.water : null;
+                bill.baseline[index] = baseline.contains(code)
+                        ? invoiceCalculator.serviceAmount(code, bill.apartment, usage, vehicleCounts, baseline).dong()
+                        : bill.actual[index];
+                bill.simulated[index] = invoiceCalculator
+                        .serviceAmount(code, bill.apartment, usage, vehicleCounts, proposed).dong();
+            }
+        });
+
+        // 4. Cộng dồn theo dịch vụ và theo tòa nhà
+        long[] totalActual = new long[ServiceCode.values().length];
+        long[] totalBaseline = new long[ServiceCode.values().length];
+        long[] totalSimulated = new long[ServiceCode.values().length];
+        Map<UUID, long[][]> byBuilding = new LinkedHashMap<>();
+        for (ApartmentMonth bill : bills.values()) {
+            long[][] building = byBuilding.computeIfAbsent(bill.buildingId,
+                    id -> new long[][] { new long[totalActual.length], new long[totalActual.length], new long[totalActual.length] });
+            for (ServiceCode code : PRICED_SERVICES) {
+                int index = code.ordinal();
+                totalActual[index] += bill.actual[index];
+                totalBaseline[index] += bill.baseline[index];
+                totalSimulated[index] += bill.simulated[index];
+                building[0][index] += bill.actual[index];
+                building[1][index] += bill.simulated[index];
+                building[2][index] += bill.baseline[index];
+            }
+        }
+
+        List<BuildingDeltaDTO> buildings = new ArrayList<>();
+        byBuilding.forEach((buildingId, sums) -> buildings.add(BuildingDeltaDTO.builder()
+                .buildingId(buildingId)
+                .buildingName(buildingNames.get(buildingId))
+                .actualAmount(Vnd.of(sum(sums[0])).toBigDecimal())
+                .simulatedAmount(Vnd.of(sum(sums[1])).toBigDecimal())
+                .deltaAmount(Vnd.of(sum(sums[1]) - sum(sums[0])).toBigDecimal())
+                .services(serviceDeltas(sums[0], sums[2], sums[1]))
+                .build()));
+        buildings.sort(Comparator.comparing(BuildingDeltaDTO::getBuildingName, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Simulated tariff over {} invoices ({} months) in {} ms", bills.size(), toPeriod - fromPeriod + 1, durationMs);
+        return TariffSimulationResultDTO.builder()
+                .fromMonth(request.getFromMonth())
+                .fromYear(request.getFromYear())
+                .toMonth(request.getToMonth())
+                .toYear(request.getToYear())
+                .monthCount(toPeriod - fromPeriod + 1)
+                .invoiceCount(bills.size())
+                .durationMs(durationMs)
+                .actualAmount(Vnd.of(sum(totalActual)).toBigDecimal())
+                .simulatedAmount(Vnd.of(sum(totalSimulated)).toBigDecimal())
+                .deltaAmount(Vnd.of(sum(totalSimulated) - sum(totalActual)).toBigDecimal())
+                .services(serviceDeltas(totalActual, totalBaseline, totalSimulated))
+                .buildings(buildings)
+                .build();
+    }
+
+    private List<ServiceDeltaDTO> serviceDeltas(long[] actual, long[] baseline, long[] simulated) {
+        List<ServiceDeltaDTO> deltas = new ArrayList<>();
+        for (ServiceCode code : PRICED_SERVICES) {
+            int index = code.ordinal();
+            Vnd delta = Vnd.of(simulated[index] - actual[index]);
+            deltas.add(ServiceDeltaDTO.builder()
+                    .serviceCode(code)
+                    .actualAmount(Vnd.of(actual[index]).toBigDecimal())
+                    .baselineAmount(Vnd.of(baseline[index]).toBigDecimal())
+                    .simulatedAmount(Vnd.of(simulated[index]).toBigDecimal())
+                    .deltaAmount(delta.toBigDecimal())
+                    .deltaPercentage(delta.percentOf(Vnd.of(actual[index])))
+                    .build());
+        }
+        return deltas;
+    }
+
+    // Bảng giá đề xuất dưới dạng entity tạm (không lưu) để dùng chung TariffSnapshot/CompiledTariff với lúc tạo hóa đơn
+    private List<ServicePrice> toServicePrices(List<ProposedPriceDTO> prices) {
+        if (prices == null || prices.isEmpty()) {
+            throw new RuntimeException("Proposed tariff must contain at least one service price!");
+        }
+
+        Map<ServiceCode, ServicePrice> byCode = new EnumMap<>(ServiceCode.class);
+        for (ProposedPriceDTO price : prices) {
+            ServiceCode code = price.getServiceCode();
+            if (code == null || !PRICED_SERVICES.contains(code)) {
+                throw new RuntimeException("Service " + code + " has no tariff to simulate!");
+            }
+            if (price.isFlat() && price.getFlatPrice() == null) {
+                throw new RuntimeException("Flat price is required for service " + code + "!");
+            }
+            if (!price.isFlat() && (price.getTiers() == null || price.getTiers().isEmpty())) {
+                throw new RuntimeException("Price tiers are required for service " + code + "!");
+            }
+
+            List<PriceTier> tiers = price.getTiers() == null ? List.of() : price.getTiers().stream()
+                    .map(tier -> PriceTier.builder()
+                            .code(tier.getCode())
+                            .minUsage(tier.getMinUsage())
+                            .maxUsage(tier.getMaxUsage())
+                            .unitPrice(tier.getUnitPrice())
+                            .build())
+                    .toList();
+            byCode.put(code, ServicePrice.builder()
+                    .serviceType(ServiceType.builder().code(code).build())
+                    .isFlat(price.isFlat())
+                    .flatPrice(price.getFlatPrice())
+                    .tiers(tiers)
+                    .build());
+        }
+        return List.copyOf(byCode.values());
+    }
+
+    private static int period(Integer month, Integer year) {
+        if (month == null || year == null || month < 1 || month > 12) {
+            throw new RuntimeException("Invalid simulation period!");
+        }
+        return year * 12 + month;
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) total = Math.addExact(total, value);
+        return total;
+    }
+
+    private record BillKey(int period, UUID apartmentId) {
+    }
+
+    // Một hóa đơn lịch sử: số tiền đã phát hành và số tiền mô phỏng theo mã dịch vụ (chỉ số ordinal)
+    private static final class ApartmentMonth {
+        private final Apartment apartment;
+        private final UUID buildingId;
+        private final long[] actual = new long[ServiceCode.values().length];
+        private final long[] baseline = new long[ServiceCode.values().length];
+        private final long[] simulated = new long[ServiceCode.values().length];
+        private BigDecimal electricity;
+        private BigDecimal water;
+
+        private ApartmentMonth(Apartment apartment, UUID buildingId) {
+            this.apartment = apartment;
+            this.buildingId = buildingId;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package itep.software.bluemoon.service.billing;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import itep.software.bluemoon.entity.accounting.PriceTier;
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.enumeration.TierCode;
+import lombok.Getter;
+
+/**
+ * Bảng giá đang áp dụng của mọi dịch vụ, nạp một lần cho mỗi lần tạo hóa đơn. Bất biến nên dùng chung giữa các luồng
+ */
+public final class TariffSnapshot {
+    private final Map<ServiceCode, Tariff> tariffs;
+    @Getter
+    private final String version;
+
+    private TariffSnapshot(Map<ServiceCode, Tariff> tariffs) {
+        this.tariffs = tariffs;
+        this.version = computeVersion(tariffs);
+    }
+
+    public static TariffSnapshot of(List<ServicePrice> activePrices) {
+        Map<ServiceCode, Tariff> tariffs = new EnumMap<>(ServiceCode.class);
+        for (ServicePrice price : activePrices) {
+            ServiceCode code = price.getServiceType().getCode();
+            Tariff current = tariffs.get(code);
+            // Nếu có nhiều bảng giá cùng hiệu lực thì lấy bảng giá bắt đầu muộn nhất
+            if (current == null || price.getStartDate().isAfter(current.getStartDate())) {
+                tariffs.put(code, new Tariff(price));
+            }
+        }
+        return new TariffSnapshot(Collections.unmodifiableMap(tariffs));
+    }
+
+    // Thay đổi bất kỳ giá/bậc nào cũng cho ra phiên bản khác
+    private static String computeVersion(Map<ServiceCode, Tariff> tariffs) {
+        StringBuilder input = new StringBuilder();
+        tariffs.forEach((code, tariff) -> {
+            input.append(code).append(':').append(tariff.getPriceId())
+                 .append(':').append(BillingFingerprint.plain(tariff.getFlatPrice()));
+            for (Tier tier : tariff.getTiers()) {
+                input.append(';').append(tier.getCode())
+                     .append(',').append(tier.getMinUsage())
+                     .append(',').append(tier.getMaxUsage())
+                     .append(',').append(BillingFingerprint.plain(tier.getUnitPrice()));
+            }
+            input.append('|');
+        });
+        return BillingFingerprint.sha256(input.toString());
+    }
+
+    // Bản sao với bảng giá đề xuất thay cho các dịch vụ tương ứng, các dịch vụ còn lại giữ nguyên (dùng khi mô phỏng)
+    public TariffSnapshot override(List<ServicePrice> proposedPrices) {
+        Map<ServiceCode, Tariff> merged = new EnumMap<>(ServiceCode.class);
+        merged.putAll(tariffs);
+        for (ServicePrice price : proposedPrices) {
+            merged.put(price.getServiceType().getCode(), new Tariff(price));
+        }
+        return new TariffSnapshot(Collections.unmodifiableMap(merged));
+    }
+
+    public boolean contains(ServiceCode code) {
+        return tariffs.containsKey(code);
+    }
+
+    public Tariff require(ServiceCode code) {
+        Tariff tariff = tariffs.get(code);
+        if (tariff == null) {
+            throw new RuntimeException("Service price has not yet been configured: " + code);
+        }
+        return tariff;
+    }
+
+    @Getter
+    public static final class Tariff {
+        private final UUID priceId;
+        private final ServiceCode code;
+        private final LocalDate startDate;
+        private final BigDecimal flatPrice;
+        private final List<Tier> tiers;
+        private final Map<TierCode, BigDecimal> tierPrices;
+        private final CompiledTariff compiled;
+
+        private Tariff(ServicePrice price) {
+            this.priceId = price.getId();
+            this.code = price.getServiceType().getCode();
+            this.startDate = price.getStartDate();
+            this.flatPrice = price.getFlatPrice();
+
+            List<PriceTier> priceTiers = price.getTiers() != null ? price.getTiers() : List.of();
+            this.tiers = priceTiers.stream()
+                    .sorted(Comparator.comparing(PriceTier::getMinUsage))
+                    .map(Tier::new)
+                    .toList();
+
+            Map<TierCode, BigDecimal> prices = new EnumMap<>(TierCode.class);
+            for (Tier tier : tiers) {
+                if (tier.getCode() != null) {
+                    prices.putIfAbsent(tier.getCode(), tier.getUnitPrice());
+                }
+            }
+            this.tierPrices = Collections.unmodifiableMap(prices);
+            this.compiled = CompiledTariff.of(tiers);
+        }
+
+        public BigDecimal getTierPrice(TierCode tierCode) {
+            if (tierCode == null) return BigDecimal.ZERO;
+            return tierPrices.getOrDefault(tierCode, BigDecimal.ZERO);
+        }
+    }
+
+    @Getter
+    public static final class Tier {
+        private final TierCode code;
+        private final int minUsage;
+        private final Integer maxUsage;
+        private final BigDecimal unitPrice;
+
+        private Tier(PriceTier tier) {
+            this.code = tier.getCode();
+            this.minUsage = tier.getMinUsage();
+            this.maxUsage = tier.getMaxUsage();
+            this.unitPrice = tier.getUnitPrice();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package itep.software.bluemoon.service.billing;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import itep.software.bluemoon.enumeration.VehicleType;
+
+/**
+ * Số xe theo từng loại của mỗi căn hộ, dựng từ một câu truy vấn GROUP BY duy nhất
+ */
+public final class VehicleCountTable {
+    private static final int TYPE_COUNT = VehicleType.values().length;
+
+    private final Map<UUID, int[]> counts;
+
+    private VehicleCountTable(Map<UUID, int[]> counts) {
+        this.counts = counts;
+    }
+
+    // Mỗi dòng: [apartmentId, VehicleType, count]
+    public static VehicleCountTable of(List<Object[]> rows) {
+        Map<UUID, int[]> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            UUID apartmentId = (UUID) row[0];
+            VehicleType type = (VehicleType) row[1];
+            if (apartmentId == null || type == null) continue;
+
+            int[] byType = counts.computeIfAbsent(apartmentId, id -> new int[TYPE_COUNT]);
+            byType[type.ordinal()] += ((Number) row[2]).intValue();
+        }
+        return new VehicleCountTable(counts);
+    }
+
+    public int count(UUID apartmentId, VehicleType type) {
+        int[] byType = counts.get(apartmentId);
+        return byType == null ? 0 : byType[type.ordinal()];
+    }
+}
@@ -0,0 +1,10 @@
+package itep.software.bluemoon.service.billing.calculator;
+
+/**
+ * Dữ liệu gom mà một calculator cần, được nạp một lần cho cả lượt tạo hóa đơn
+ */
+public enum BillingInput {
+    USAGE,          // chỉ số công tơ trong kỳ của chính dịch vụ đó
+    VEHICLE_COUNTS, // số xe theo căn hộ và loại xe
+    EXTRA_FEES      // phí khác chưa tính tiền
+}
@@ -0,0 +1,13 @@
+package itep.software.bluemoon.service.billing.calculator;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.service.billing.LineItemEncoder;
+
+@Component
+public class ElectricityCalculator extends MeteredServiceCalculator {
+    public ElectricityCalculator(LineItemEncoder lineItemEncoder) {
+        super(ServiceCode.ELECTRICITY, lineItemEncoder);
+    }
+}
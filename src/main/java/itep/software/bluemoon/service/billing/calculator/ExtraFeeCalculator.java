@@ -0,0 +1,50 @@
+package itep.software.bluemoon.service.billing.calculator;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.ExtraFee;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.service.billing.BillingContext;
+import itep.software.bluemoon.util.VndUtils;
+
+/**
+ * Phí khác (OTHER): mỗi khoản phí chưa tính tiền là một dòng chi tiết.
+ * Việc đánh dấu isBilled do engine làm bằng một câu UPDATE sau khi lưu hóa đơn
+ */
+@Component
+public class ExtraFeeCalculator implements ServiceCalculator {
+    @Override
+    public ServiceCode code() {
+        return ServiceCode.OTHER;
+    }
+
+    @Override
+    public Set<BillingInput> inputs() {
+        return Set.of(BillingInput.EXTRA_FEES);
+    }
+
+    @Override
+    public void calculate(Invoice invoice, Apartment apartment, ServiceType type, BillingContext context) {
+        for (ExtraFee fee : context.getExtraFees(apartment.getId())) {
+            BigDecimal amount = fee.getAmount();
+
+            invoice.getDetails().add(InvoiceDetail.builder()
+                    .invoice(invoice)
+                    .serviceType(type)
+                    .quantity(fee.getQuantity())
+                    .unitPrice(VndUtils.divide(amount, amount))
+                    .amount(amount)
+                    .referenceId(fee.getId())
+                    .description(fee.getTitle())
+                    .lineItems(null)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package itep.software.bluemoon.service.billing.calculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.service.billing.BillingContext;
+import itep.software.bluemoon.service.billing.LineItemEncoder;
+import itep.software.bluemoon.service.billing.TariffSnapshot;
+import itep.software.bluemoon.service.billing.VehicleCountTable;
+import itep.software.bluemoon.util.Vnd;
+import itep.software.bluemoon.util.VndUtils;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Phí quản lý: diện tích x đơn giá cố định, chỉ cần bảng giá
+ */
+@Component
+@RequiredArgsConstructor
+public class ManagementFeeCalculator implements ServiceCalculator {
+    private final LineItemEncoder lineItemEncoder;
+
+    @Override
+    public ServiceCode code() {
+        return ServiceCode.MANAGEMENT;
+    }
+
+    @Override
+    public Set<BillingInput> inputs() {
+        return Set.of();
+    }
+
+    @Override
+    public void calculate(Invoice invoice, Apartment apartment, ServiceType type, BillingContext context) {
+        BigDecimal quantity = apartment.getArea();
+        BigDecimal unitPrice = flatPrice(context.getTariffs());
+        Vnd amount = Vnd.product(quantity, unitPrice);
+
+        invoice.getDetails().add(InvoiceDetail.builder()
+                .invoice(invoice)
+                .serviceType(type)
+                .quantity(quantity)
+                .unitPrice(unitPrice)
+                .amount(amount.toBigDecimal())
+                .description("Management fees (" + quantity.setScale(2, RoundingMode.HALF_UP).toPlainString()
+                        + " m2 x " + VndUtils.format(unitPrice) + ")")
+                .lineItems(lineItemEncoder.begin()
+                        .add("Management fee", quantity.intValue(), unitPrice, amount.dong())
+                        .toJson())
+                .build());
+    }
+
+    @Override
+    public Vnd amount(Apartment apartment, BigDecimal usage, VehicleCountTable vehicleCounts, TariffSnapshot tariffs) {
+        return Vnd.product(apartment.getArea(), flatPrice(tariffs));
+    }
+
+    private static BigDecimal flatPrice(TariffSnapshot tariffs) {
+        BigDecimal flatPrice = tariffs.require(ServiceCode.MANAGEMENT).getFlatPrice();
+        if (flatPrice == null) {
+            throw new RuntimeException("Management fees have not yet been configured!");
+        }
+        return flatPrice;
+    }
+}
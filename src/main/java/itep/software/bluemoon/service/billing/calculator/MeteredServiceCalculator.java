@@ -0,0 +1,78 @@
+package itep.software.bluemoon.service.billing.calculator;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.entity.accounting.UsageRecord;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.service.billing.BillingContext;
+import itep.software.bluemoon.service.billing.CompiledTariff;
+import itep.software.bluemoon.service.billing.LineItemEncoder;
+import itep.software.bluemoon.service.billing.TariffSnapshot;
+import itep.software.bluemoon.service.billing.VehicleCountTable;
+import itep.software.bluemoon.util.Vnd;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dịch vụ tính theo công tơ (bậc thang + link UsageRecord). Thêm một dịch vụ công tơ mới chỉ cần một lớp con:
+ * chỉ số của mọi dịch vụ công tơ được nạp chung một câu truy vấn
+ */
+@Slf4j
+public abstract class MeteredServiceCalculator implements ServiceCalculator {
+    private final ServiceCode code;
+    private final LineItemEncoder lineItemEncoder;
+
+    protected MeteredServiceCalculator(ServiceCode code, LineItemEncoder lineItemEncoder) {
+        this.code = code;
+        this.lineItemEncoder = lineItemEncoder;
+    }
+
+    @Override
+    public ServiceCode code() {
+        return code;
+    }
+
+    @Override
+    public Set<BillingInput> inputs() {
+        return Set.of(BillingInput.USAGE);
+    }
+
+    @Override
+    public void calculate(Invoice invoice, Apartment apartment, ServiceType type, BillingContext context) {
+        UsageRecord usage = context.getUsage(code, apartment.getId());
+        if (usage == null) {
+            log.warn("Warning: Not found usage record of apartment " + apartment.getRoomNumber());
+            return;
+        }
+
+        // Bậc thang đã biên dịch sẵn trong snapshot, chi tiết từng bậc chỉ để ghi line item
+        BigDecimal consumedQuantity = usage.getQuantity();
+        CompiledTariff tariff = context.getTariffs().require(code).getCompiled();
+        long quantity = consumedQuantity.longValueExact();
+        LineItemEncoder.Items items = lineItemEncoder.begin();
+        for (CompiledTariff.Band band : tariff.breakdown(quantity)) {
+            items.add(band.label(), band.quantity(), band.unitPrice(), band.amount());
+        }
+
+        invoice.getDetails().add(InvoiceDetail.builder()
+                .invoice(invoice)
+                .serviceType(type)
+                .quantity(consumedQuantity)
+                .unitPrice(BigDecimal.ZERO) // Giá bậc thang nên để 0
+                .amount(BigDecimal.valueOf(tariff.cost(quantity)))
+                .usageRecord(usage)
+                .description("New: " + usage.getNewIndex() + " - Old: " + usage.getOldIndex())
+                .lineItems(items.toJson())
+                .build());
+    }
+
+    @Override
+    public Vnd amount(Apartment apartment, BigDecimal usage, VehicleCountTable vehicleCounts, TariffSnapshot tariffs) {
+        if (usage == null) return Vnd.ZERO;
+        return Vnd.of(tariffs.require(code).getCompiled().cost(usage.longValueExact()));
+    }
+}
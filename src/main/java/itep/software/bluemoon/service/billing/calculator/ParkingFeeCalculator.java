@@ -0,0 +1,90 @@
+package itep.software.bluemoon.service.billing.calculator;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.enumeration.TierCode;
+import itep.software.bluemoon.enumeration.VehicleType;
+import itep.software.bluemoon.service.billing.BillingContext;
+import itep.software.bluemoon.service.billing.LineItemEncoder;
+import itep.software.bluemoon.service.billing.TariffSnapshot;
+import itep.software.bluemoon.service.billing.TariffSnapshot.Tariff;
+import itep.software.bluemoon.service.billing.VehicleCountTable;
+import itep.software.bluemoon.util.Vnd;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Phí gửi xe: số xe từng loại x giá bậc tương ứng (BIKE, MOTO, CAR)
+ */
+@Component
+@RequiredArgsConstructor
+public class ParkingFeeCalculator implements ServiceCalculator {
+    private final LineItemEncoder lineItemEncoder;
+
+    @Override
+    public ServiceCode code() {
+        return ServiceCode.PARKING;
+    }
+
+    @Override
+    public Set<BillingInput> inputs() {
+        return Set.of(BillingInput.VEHICLE_COUNTS);
+    }
+
+    @Override
+    public void calculate(Invoice invoice, Apartment apartment, ServiceType type, BillingContext context) {
+        Tariff priceConfig = context.getTariffs().require(ServiceCode.PARKING);
+        VehicleCountTable vehicleCounts = context.getVehicleCounts();
+        int countBike = vehicleCounts.count(apartment.getId(), VehicleType.BICYCLE);
+        int countMoto = vehicleCounts.count(apartment.getId(), VehicleType.MOTORBIKE);
+        int countCar = vehicleCounts.count(apartment.getId(), VehicleType.CAR);
+        BigDecimal priceBike = priceConfig.getTierPrice(TierCode.BIKE);
+        BigDecimal priceMoto = priceConfig.getTierPrice(TierCode.MOTO);
+        BigDecimal priceCar  = priceConfig.getTierPrice(TierCode.CAR);
+        LineItemEncoder.Items items = lineItemEncoder.begin();
+        Vnd parkingTotal = Vnd.ZERO;
+        if (countBike > 0) {
+            Vnd sub = Vnd.product(BigDecimal.valueOf(countBike), priceBike);
+            items.add("Bicycle parking fee", countBike, priceBike, sub.dong());
+            parkingTotal = parkingTotal.plus(sub);
+        }
+        if (countMoto > 0) {
+            Vnd sub = Vnd.product(BigDecimal.valueOf(countMoto), priceMoto);
+            items.add("Motorbike parking fee", countMoto, priceMoto, sub.dong());
+            parkingTotal = parkingTotal.plus(sub);
+        }
+        if (countCar > 0) {
+            Vnd sub = Vnd.product(BigDecimal.valueOf(countCar), priceCar);
+            items.add("Car parking fee", countCar, priceCar, sub.dong());
+            parkingTotal = parkingTotal.plus(sub);
+        }
+        int vehicleCount = countBike + countMoto + countCar;
+
+        invoice.getDetails().add(InvoiceDetail.builder()
+                .invoice(invoice)
+                .serviceType(type)
+                .quantity(BigDecimal.valueOf(vehicleCount))
+                .unitPrice(parkingTotal.dividedBy(vehicleCount).toBigDecimal())
+                .amount(parkingTotal.toBigDecimal())
+                .description("Parking fee")
+                .lineItems(items.toJson())
+                .build());
+    }
+
+    @Override
+    public Vnd amount(Apartment apartment, BigDecimal usage, VehicleCountTable vehicleCounts, TariffSnapshot tariffs) {
+        Tariff priceConfig = tariffs.require(ServiceCode.PARKING);
+        UUID apartmentId = apartment.getId();
+        return Vnd.product(BigDecimal.valueOf(vehicleCounts.count(apartmentId, VehicleType.BICYCLE)), priceConfig.getTierPrice(TierCode.BIKE))
+                .plus(Vnd.product(BigDecimal.valueOf(vehicleCounts.count(apartmentId, VehicleType.MOTORBIKE)), priceConfig.getTierPrice(TierCode.MOTO)))
+                .plus(Vnd.product(BigDecimal.valueOf(vehicleCounts.count(apartmentId, VehicleType.CAR)), priceConfig.getTierPrice(TierCode.CAR)));
+    }
+}
@@ -0,0 +1,32 @@
+package itep.software.bluemoon.service.billing.calculator;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.service.billing.BillingContext;
+import itep.software.bluemoon.service.billing.TariffSnapshot;
+import itep.software.bluemoon.service.billing.VehicleCountTable;
+import itep.software.bluemoon.util.Vnd;
+
+/**
+ * Cách tính tiền của một dịch vụ. Mỗi ServiceCode có nhiều nhất một calculator (Spring bean);
+ * calculator khai báo trước dữ liệu gom cần dùng để BillingPlan chỉ nạp đúng những dữ liệu đó
+ */
+public interface ServiceCalculator {
+    ServiceCode code();
+
+    Set<BillingInput> inputs();
+
+    // Thêm các dòng chi tiết của dịch vụ vào hóa đơn, không thêm gì nếu căn hộ không phát sinh
+    void calculate(Invoice invoice, Apartment apartment, ServiceType type, BillingContext context);
+
+    // Số tiền theo đúng công thức của calculate nhưng không dựng InvoiceDetail, dùng khi mô phỏng bảng giá.
+    // usage là chỉ số tiêu thụ của dịch vụ (null nếu không có)
+    default Vnd amount(Apartment apartment, BigDecimal usage, VehicleCountTable vehicleCounts, TariffSnapshot tariffs) {
+        return Vnd.ZERO;
+    }
+}
@@ -0,0 +1,13 @@
+package itep.software.bluemoon.service.billing.calculator;
+
+import org.springframework.stereotype.Component;
+
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.service.billing.LineItemEncoder;
+
+@Component
+public class WaterCalculator extends MeteredServiceCalculator {
+    public WaterCalculator(LineItemEncoder lineItemEncoder) {
+        super(ServiceCode.WATER, lineItemEncoder);
+    }
+}
@@ -0,0 +1,157 @@
+package itep.software.bluemoon.service.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import itep.software.bluemoon.model.DTO.cache.ReadCacheStatsDTO;
+
+/**
+ * Cache đọc có gộp yêu cầu: các lời gọi cùng khóa đến khi đang tải sẽ chờ chung một lần tải (single-flight),
+ * kết quả được giữ trong ttl. Lỗi không được cache. invalidate() tăng thế hệ nên kết quả của lần tải bắt đầu
+ * trước khi xóa chỉ trả cho các yêu cầu đang chờ, không được giữ lại
+ */
+public class ReadCache<K, V> {
+    private final String name;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    ReadCache(String name, Duration ttl, int maxEntries, LongSupplier nanoClock) {
+        this.name = name;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        while (true) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.future.isDone()) {
+                    coalesced.increment();
+                    return await(entry.future);
+                }
+                if (nanoClock.getAsLong() - entry.expiresAt < 0) {
+                    hits.increment();
+                    return entry.future.join();
+                }
+                entries.remove(key, entry);
+                continue;
+            }
+
+            Entry<V> mine = new Entry<>(generation.get());
+            if (entries.putIfAbsent(key, mine) == null) {
+                misses.increment();
+                return load(key, mine, loader);
+            }
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public ReadCacheStatsDTO stats() {
+        long hitCount = hits();
+        long total = hitCount + misses() + coalesced();
+        return ReadCacheStatsDTO.builder()
+                .name(name)
+                .ttlSeconds(Duration.ofNanos(ttlNanos).toSeconds())
+                .entries(size())
+                .hits(hitCount)
+                .misses(misses())
+                .coalesced(coalesced())
+                // Tỷ lệ yêu cầu không phải truy vấn DB
+                .savedPercentage(total == 0 ? 0.0 : Math.round((total - misses()) * 1000.0 / total) / 10.0)
+                .build();
+    }
+
+    private V load(K key, Entry<V> mine, Supplier<V> loader) {
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, mine);
+            mine.future.completeExceptionally(e);
+            throw e;
+        }
+        mine.expiresAt = nanoClock.getAsLong() + ttlNanos;
+        // Bị xóa trong lúc tải: dữ liệu có thể đã cũ
+        if (generation.get() != mine.generation) {
+            entries.remove(key, mine);
+        }
+        mine.future.complete(value);
+        if (entries.size() > maxEntries) {
+            trim();
+        }
+        return value;
+    }
+
+    // Bỏ mục hết hạn trước, vẫn quá giới hạn thì bỏ mọi mục đã tải xong
+    private void trim() {
+        long now = nanoClock.getAsLong();
+        entries.values().removeIf(entry -> entry.future.isDone() && now - entry.expiresAt >= 0);
+        if (entries.size() > maxEntries) {
+            entries.values().removeIf(entry -> entry.future.isDone());
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private final long generation;
+        // Ghi trước khi future hoàn tất
+        private volatile long expiresAt;
+
+        private Entry(long generation) {
+            this.generation = generation;
+        }
+    }
+}
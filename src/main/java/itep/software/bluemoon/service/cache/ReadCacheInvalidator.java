@@ -0,0 +1,41 @@
+package itep.software.bluemoon.service.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Entity listener của Apartment, Building và Person: xóa ReadCaches sau khi transaction kết thúc,
+ * mỗi transaction một lần dù ghi bao nhiêu bản ghi
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadCacheInvalidator {
+    private final ReadCaches readCaches;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Object entity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            readCaches.invalidateAll();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReadCacheInvalidator.this);
+                readCaches.invalidateAll();
+            }
+        });
+    }
+}
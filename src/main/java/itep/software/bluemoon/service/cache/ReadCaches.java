@@ -0,0 +1,86 @@
+package itep.software.bluemoon.service.cache;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import itep.software.bluemoon.model.DTO.accounting.AccountingDashboardResponseDTO;
+import itep.software.bluemoon.model.DTO.cache.ReadCacheStatsDTO;
+import itep.software.bluemoon.model.projection.ApartmentSummary;
+import itep.software.bluemoon.model.projection.InvoiceSummary;
+import itep.software.bluemoon.model.projection.ResidentSummary;
+import itep.software.bluemoon.service.billing.InvoiceChangeEvent;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache của các API đọc nặng mà nhiều người mở cùng lúc đầu ca. Khóa là danh sách tham số (Arrays.asList, cho phép null).
+ * Dữ liệu hóa đơn bị xóa khi có InvoiceChangeEvent đã commit; căn hộ, tòa nhà, cư dân đổi thì
+ * ReadCacheInvalidator xóa tất cả. Bộ đếm hit/miss/coalesced có ở /accounting/caches và metric bluemoon.cache.requests
+ */
+@Component
+@Getter
+@Slf4j
+public class ReadCaches {
+    private final ReadCache<List<?>, AccountingDashboardResponseDTO> dashboardMetrics;
+    private final ReadCache<List<?>, List<InvoiceSummary>> invoiceSummaries;
+    // Lưu byte[] của file, mỗi lần tải xuống bọc ByteArrayInputStream mới
+    private final ReadCache<List<?>, byte[]> invoiceExports;
+    private final ReadCache<List<?>, List<ApartmentSummary>> apartmentSearches;
+    private final ReadCache<List<?>, List<ResidentSummary>> residentSearches;
+
+    public ReadCaches(MeterRegistry meterRegistry,
+                      @Value("${bluemoon.cache.ttl-seconds:30}") long ttlSeconds,
+                      @Value("${bluemoon.cache.max-entries:500}") int maxEntries) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.dashboardMetrics = register(meterRegistry, new ReadCache<>("dashboard-metrics", ttl, maxEntries, System::nanoTime));
+        this.invoiceSummaries = register(meterRegistry, new ReadCache<>("invoice-summary", ttl, maxEntries, System::nanoTime));
+        this.invoiceExports = register(meterRegistry, new ReadCache<>("invoice-export", ttl, maxEntries, System::nanoTime));
+        this.apartmentSearches = register(meterRegistry, new ReadCache<>("apartment-search", ttl, maxEntries, System::nanoTime));
+        this.residentSearches = register(meterRegistry, new ReadCache<>("resident-search", ttl, maxEntries, System::nanoTime));
+    }
+
+    public List<ReadCacheStatsDTO> stats() {
+        return all().stream().map(ReadCache::stats).toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInvoiceChange(InvoiceChangeEvent event) {
+        dashboardMetrics.invalidate();
+        invoiceSummaries.invalidate();
+        invoiceExports.invalidate();
+    }
+
+    // Tên căn hộ, tòa nhà, chủ hộ xuất hiện cả trong danh sách hóa đơn và file Excel
+    public void invalidateAll() {
+        all().forEach(ReadCache::invalidate);
+        log.debug("Read caches invalidated");
+    }
+
+    private List<ReadCache<?, ?>> all() {
+        return List.of(dashboardMetrics, invoiceSummaries, invoiceExports, apartmentSearches, residentSearches);
+    }
+
+    private static <K, V> ReadCache<K, V> register(MeterRegistry meterRegistry, ReadCache<K, V> cache) {
+        FunctionCounter.builder("bluemoon.cache.requests", cache, ReadCache::hits)
+                .tag("cache", cache.name()).tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("bluemoon.cache.requests", cache, ReadCache::misses)
+                .tag("cache", cache.name()).tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("bluemoon.cache.requests", cache, ReadCache::coalesced)
+                .tag("cache", cache.name()).tag("result", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("bluemoon.cache.size", cache, ReadCache::size)
+                .tag("cache", cache.name())
+                .register(meterRegistry);
+        return cache;
+    }
+}
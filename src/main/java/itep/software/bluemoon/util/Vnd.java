@@ -0,0 +1,125 @@
+package itep.software.bluemoon.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Số tiền VNĐ bất biến, lưu bằng một số long đồng. Phép tính có kiểm tra tràn số (ArithmeticException),
+ * phép nhân làm tròn HALF_UP như VndUtils.multiply
+ */
+public record Vnd(long dong) implements Comparable<Vnd> {
+    public static final Vnd ZERO = new Vnd(0);
+
+    private static final long[] POW10 = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    public static Vnd of(long dong) {
+        return dong == 0 ? ZERO : new Vnd(dong);
+    }
+
+    // Làm tròn HALF_UP về đồng; null -> 0
+    public static Vnd of(BigDecimal amount) {
+        if (amount == null) return ZERO;
+        return of(amount.setScale(0, RoundingMode.HALF_UP).longValueExact());
+    }
+
+    // quantity × unitPrice (ví dụ diện tích × đơn giá), làm tròn HALF_UP; tính trên long khi không tràn số
+    public static Vnd product(BigDecimal quantity, BigDecimal unitPrice) {
+        if (quantity == null || unitPrice == null) return ZERO;
+
+        int scale = quantity.scale() + unitPrice.scale();
+        if (quantity.scale() >= 0 && unitPrice.scale() >= 0 && scale < POW10.length
+                && quantity.unscaledValue().bitLength() < 64 && unitPrice.unscaledValue().bitLength() < 64) {
+            try {
+                long unscaled = Math.multiplyExact(quantity.unscaledValue().longValue(), unitPrice.unscaledValue().longValue());
+                return of(divideHalfUp(unscaled, POW10[scale]));
+            } catch (ArithmeticException overflow) {
+                // Tràn long ở bước trung gian: tính lại bằng BigDecimal bên dưới
+            }
+        }
+        return of(quantity.multiply(unitPrice));
+    }
+
+    public Vnd plus(Vnd other) {
+        return of(Math.addExact(dong, other.dong));
+    }
+
+    public Vnd minus(Vnd other) {
+        return of(Math.subtractExact(dong, other.dong));
+    }
+
+    public Vnd times(long quantity) {
+        return of(Math.multiplyExact(dong, quantity));
+    }
+
+    public Vnd times(BigDecimal factor) {
+        return product(factor, BigDecimal.valueOf(dong));
+    }
+
+    // Chia đều, làm tròn HALF_UP; chia cho 0 trả về 0 như VndUtils.divide
+    public Vnd dividedBy(long divisor) {
+        if (divisor == 0) return ZERO;
+        return of(divideHalfUp(dong, divisor));
+    }
+
+    // Tỷ lệ phần trăm của this so với total, 2 chữ số thập phân
+    public double percentOf(Vnd total) {
+        if (total.dong <= 0) return 0.0;
+        return divideHalfUp(Math.multiplyExact(dong, 10_000L), total.dong) / 100.0;
+    }
+
+    public boolean isPositive() {
+        return dong > 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(dong);
+    }
+
+    public String format() {
+        return format(dong);
+    }
+
+    @Override
+    public int compareTo(Vnd other) {
+        return Long.compare(dong, other.dong);
+    }
+
+    @Override
+    public String toString() {
+        return format() + " VNĐ";
+    }
+
+    // Nhóm 3 chữ số bằng dấu chấm như DecimalFormat("###,###") của VndUtils; không cấp phát formatter, an toàn đa luồng
+    public static String format(long dong) {
+        if (dong == Long.MIN_VALUE) {
+            return "-9.223.372.036.854.775.808";
+        }
+        long value = Math.abs(dong);
+        char[] buffer = new char[26];
+        int pos = buffer.length;
+        int digits = 0;
+        do {
+            if (digits > 0 && digits % 3 == 0) {
+                buffer[--pos] = '.';
+            }
+            buffer[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+            digits++;
+        } while (value > 0);
+        if (dong < 0) {
+            buffer[--pos] = '-';
+        }
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,23 @@
+package itep.software.bluemoon.util;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Ánh xạ Vnd với các cột tiền numeric(20,2) hiện có. Dùng bằng @Convert(converter = VndConverter.class)
+ */
+@Converter
+public class VndConverter implements AttributeConverter<Vnd, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Vnd attribute) {
+        return attribute != null ? attribute.toBigDecimal().setScale(2) : null;
+    }
+
+    @Override
+    public Vnd convertToEntityAttribute(BigDecimal dbData) {
+        return dbData != null ? Vnd.of(dbData) : null;
+    }
+}
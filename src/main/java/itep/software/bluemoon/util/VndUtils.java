@@ -12,15 +12,22 @@ public class VndUtils {
     private static final int SCALE_CURRENCY = 0; 
     private static final int SCALE_RATIO = 4; 
 
+    // DecimalFormat không an toàn đa luồng nên mỗi luồng giữ một bản, chỉ dùng khi số tiền vượt quá long
+    private static final ThreadLocal<DecimalFormat> FORMATTER = ThreadLocal.withInitial(() -> {
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols(VIETNAM_LOCALE);
+        symbols.setGroupingSeparator('.');
+        return new DecimalFormat("###,###", symbols);
+    });
+
     public static String format(BigDecimal amount) {
         if (amount == null) {
             return "0";
         }
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(VIETNAM_LOCALE);
-        symbols.setGroupingSeparator('.'); 
-        
-        DecimalFormat formatter = new DecimalFormat("###,###", symbols);
-        return formatter.format(amount.setScale(SCALE_CURRENCY, ROUNDING_MODE));
+        BigDecimal rounded = amount.setScale(SCALE_CURRENCY, ROUNDING_MODE);
+        if (rounded.unscaledValue().bitLength() < 64) {
+            return Vnd.format(rounded.longValue());
+        }
+        return FORMATTER.get().format(rounded);
     }
     
     public static String formatMoney(BigDecimal amount) {
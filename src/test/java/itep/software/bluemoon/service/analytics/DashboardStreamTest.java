@@ -0,0 +1,99 @@
+package itep.software.bluemoon.service.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.model.DTO.accounting.AccountingDashboardResponseDTO;
+import itep.software.bluemoon.service.billing.InvoiceAggregateStore;
+import itep.software.bluemoon.service.billing.InvoiceChangeEvent;
+
+class DashboardStreamTest {
+    private final InvoiceAggregateStore invoiceAggregateStore = mock(InvoiceAggregateStore.class);
+    private final DashboardStream stream = new DashboardStream(invoiceAggregateStore);
+
+    @Test
+    void coalescesChangesIntoOnePushPerTick() throws IOException {
+        when(invoiceAggregateStore.dashboardMetrics()).thenReturn(new AccountingDashboardResponseDTO());
+        SseEmitter emitter = mock(SseEmitter.class);
+        stream.register(emitter);
+        verify(emitter, timeout(1000).times(1)).send(any(SseEmitter.SseEventBuilder.class));
+
+        stream.onInvoiceChange(new InvoiceChangeEvent(
+                Map.of(InvoiceStatus.UNPAID, new InvoiceAggregateStore.Totals(2, BigDecimal.valueOf(200))), Set.of(YearMonth.of(2025, 1))));
+        stream.onInvoiceChange(new InvoiceChangeEvent(
+                Map.of(InvoiceStatus.UNPAID, new InvoiceAggregateStore.Totals(1, BigDecimal.valueOf(100))), Set.of()));
+        stream.flush();
+        stream.flush();
+
+        // Gói đầu khi đăng ký + đúng một gói cho hai thay đổi
+        verify(emitter, timeout(1000).times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(invoiceAggregateStore, times(2)).dashboardMetrics();
+    }
+
+    @Test
+    void dropsSubscriberWhoseConnectionFailed() throws IOException {
+        when(invoiceAggregateStore.dashboardMetrics()).thenReturn(new AccountingDashboardResponseDTO());
+        SseEmitter emitter = mock(SseEmitter.class);
+        doThrow(new IOException("Broken pipe")).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+
+        stream.register(emitter);
+
+        verify(emitter, timeout(1000)).complete();
+        assertEquals(0, stream.subscriberCount());
+    }
+
+    @Test
+    void slowSubscriberReceivesUpdatesInSequenceOrder() throws Exception {
+        when(invoiceAggregateStore.dashboardMetrics()).thenReturn(new AccountingDashboardResponseDTO());
+        List<Long> received = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(4);
+        AtomicBoolean first = new AtomicBoolean(true);
+        SseEmitter emitter = mock(SseEmitter.class);
+        doAnswer(invocation -> {
+            SseEmitter.SseEventBuilder event = invocation.getArgument(0);
+            String text = event.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining());
+            long id = Long.parseLong(text.replaceAll("(?s).*\\bid:(\\d+).*", "$1"));
+            // Gói đầu tiên gửi chậm: các gói sau phải chờ chứ không vượt lên
+            if (first.getAndSet(false)) {
+                Thread.sleep(200);
+            }
+            received.add(id);
+            delivered.countDown();
+            return null;
+        }).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+
+        stream.register(emitter);
+        for (int i = 0; i < 3; i++) {
+            stream.onInvoiceChange(new InvoiceChangeEvent(
+                    Map.of(InvoiceStatus.UNPAID, new InvoiceAggregateStore.Totals(1, BigDecimal.TEN)), Set.of()));
+            stream.flush();
+        }
+
+        assertTrue(delivered.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 2L, 3L, 4L), received);
+    }
+}
@@ -0,0 +1,117 @@
+package itep.software.bluemoon.service.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import itep.software.bluemoon.enumeration.CubeDimension;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryRequestDTO;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryResultDTO;
+import itep.software.bluemoon.model.DTO.accounting.analytics.CubeQueryResultDTO.CubeRowDTO;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.InvoiceRepository;
+
+class InvoiceCubeTest {
+    private static final UUID BUILDING_A = UUID.randomUUID();
+    private static final UUID BUILDING_B = UUID.randomUUID();
+    private static final LocalDateTime MODIFIED = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private final InvoiceDetailRepository invoiceDetailRepository = mock(InvoiceDetailRepository.class);
+    private final InvoiceCube cube = new InvoiceCube(invoiceRepository, invoiceDetailRepository);
+
+    @Test
+    void groupsDebtByFloorAcrossPeriods() {
+        givenPeriods(MODIFIED);
+
+        CubeQueryResultDTO result = cube.query(CubeQueryRequestDTO.builder()
+                .groupBy(List.of(CubeDimension.FLOOR))
+                .filters(Map.of(CubeDimension.STATUS, List.of("UNPAID", "partial")))
+                .build());
+
+        // Tầng 3: 100.000 UNPAID (tháng 1) + 200.000 PARTIAL đã trả 50% (tháng 2); tầng 5 chỉ có hóa đơn PAID nên bị lọc
+        assertEquals(1, result.getRows().size());
+        CubeRowDTO floor3 = result.getRows().get(0);
+        assertEquals("3", floor3.getKeys().get(CubeDimension.FLOOR));
+        assertEquals(0, BigDecimal.valueOf(300_000).compareTo(floor3.getAmount()));
+        assertEquals(0, BigDecimal.valueOf(200_000).compareTo(floor3.getOutstandingAmount()));
+        assertEquals(2, floor3.getLineCount());
+    }
+
+    @Test
+    void groupsByBuildingServiceAndMonthInGroupByOrder() {
+        givenPeriods(MODIFIED);
+
+        CubeQueryResultDTO result = cube.query(CubeQueryRequestDTO.builder()
+                .groupBy(List.of(CubeDimension.BUILDING, CubeDimension.SERVICE, CubeDimension.MONTH))
+                .filters(Map.of(CubeDimension.YEAR, List.of("2025")))
+                .build());
+
+        List<String> keys = new ArrayList<>();
+        for (CubeRowDTO row : result.getRows()) {
+            keys.add(row.getKeys().get(CubeDimension.BUILDING) + "/" + row.getKeys().get(CubeDimension.SERVICE)
+                    + "/" + row.getKeys().get(CubeDimension.MONTH));
+        }
+        assertEquals(List.of("A/WATER/1", "A/ELECTRICITY/2", "B/MANAGEMENT/1"), keys);
+        assertEquals(100.0, result.getRows().get(2).getPaidPercentage());
+        assertEquals(3, result.getScannedLines());
+    }
+
+    @Test
+    void refreshReloadsOnlyChangedPeriods() {
+        givenPeriods(MODIFIED);
+        assertEquals(2, cube.refresh());
+
+        givenPeriods(MODIFIED.plusMinutes(1));
+        when(invoiceRepository.findPeriodVersions()).thenReturn(List.<Object[]>of(
+                version(1, MODIFIED), version(2, MODIFIED.plusMinutes(1))));
+
+        assertEquals(1, cube.refresh());
+        verify(invoiceDetailRepository, times(1)).findCubeFactsByPeriod(1, 2025);
+        verify(invoiceDetailRepository, times(2)).findCubeFactsByPeriod(2, 2025);
+    }
+
+    @Test
+    void rejectsUnknownEnumFilterValues() {
+        givenPeriods(MODIFIED);
+
+        assertThrows(RuntimeException.class, () -> cube.query(CubeQueryRequestDTO.builder()
+                .filters(Map.of(CubeDimension.SERVICE, List.of("GAS")))
+                .build()));
+    }
+
+    private void givenPeriods(LocalDateTime modified) {
+        when(invoiceRepository.findPeriodVersions()).thenReturn(List.<Object[]>of(version(1, modified), version(2, modified)));
+        when(invoiceDetailRepository.findCubeFactsByPeriod(anyInt(), anyInt())).thenReturn(List.of());
+        when(invoiceDetailRepository.findCubeFactsByPeriod(1, 2025)).thenReturn(List.<Object[]>of(
+                fact(BUILDING_A, "A", 3, ServiceCode.WATER, InvoiceStatus.UNPAID, 100_000, 100_000, 0),
+                fact(BUILDING_B, "B", 5, ServiceCode.MANAGEMENT, InvoiceStatus.PAID, 500_000, 500_000, 500_000)));
+        when(invoiceDetailRepository.findCubeFactsByPeriod(2, 2025)).thenReturn(List.<Object[]>of(
+                fact(BUILDING_A, "A", 3, ServiceCode.ELECTRICITY, InvoiceStatus.PARTIAL, 200_000, 200_000, 100_000)));
+    }
+
+    private static Object[] version(int month, LocalDateTime modified) {
+        return new Object[] { 2025, month, 2L, modified, BigDecimal.valueOf(600_000), BigDecimal.ZERO };
+    }
+
+    private static Object[] fact(UUID building, String name, int floor, ServiceCode service, InvoiceStatus status,
+                                 long amount, long invoiceTotal, long invoicePaid) {
+        return new Object[] { building, name, floor, service, status, BigDecimal.valueOf(amount),
+                BigDecimal.valueOf(invoiceTotal), BigDecimal.valueOf(invoicePaid) };
+    }
+}
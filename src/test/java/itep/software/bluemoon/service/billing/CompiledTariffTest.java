@@ -0,0 +1,77 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import itep.software.bluemoon.entity.accounting.PriceTier;
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.util.VndUtils;
+
+class CompiledTariffTest {
+
+    @Test
+    void matchesTheBigDecimalTierLoopForEveryConsumption() {
+        TariffSnapshot.Tariff tariff = electricity(
+                tier(0, 50, "1806"),
+                tier(50, 100, "1866.50"),
+                tier(100, 200, "2167"),
+                tier(200, 300, "2729.49"),
+                tier(300, null, "3015.75"));
+
+        for (long quantity = 0; quantity <= 1000; quantity++) {
+            assertEquals(legacyCost(tariff.getTiers(), quantity), tariff.getCompiled().cost(quantity), "quantity " + quantity);
+            assertEquals(tariff.getCompiled().cost(quantity),
+                    tariff.getCompiled().breakdown(quantity).stream().mapToLong(CompiledTariff.Band::amount).sum());
+        }
+    }
+
+    @Test
+    void ignoresConsumptionAboveTheLastBoundedTier() {
+        TariffSnapshot.Tariff tariff = electricity(
+                tier(0, 10, "1000"),
+                tier(10, 20, "2000"));
+
+        assertEquals(30000, tariff.getCompiled().cost(20));
+        assertEquals(legacyCost(tariff.getTiers(), 25), tariff.getCompiled().cost(25));
+        assertEquals(2, tariff.getCompiled().breakdown(25).size());
+    }
+
+    // Vòng lặp BigDecimal cũ của calculateUsageTierService, dùng làm chuẩn so sánh
+    static long legacyCost(List<TariffSnapshot.Tier> tiers, long consumed) {
+        BigDecimal remaining = BigDecimal.valueOf(consumed);
+        BigDecimal total = BigDecimal.ZERO;
+        for (TariffSnapshot.Tier tier : tiers) {
+            if (remaining.compareTo(BigDecimal.ZERO) <= 0) break;
+            BigDecimal amountInTier = tier.getMaxUsage() != null
+                    ? remaining.min(BigDecimal.valueOf(tier.getMaxUsage()).subtract(BigDecimal.valueOf(tier.getMinUsage())))
+                    : remaining;
+            total = VndUtils.add(total, VndUtils.multiply(amountInTier, tier.getUnitPrice()));
+            remaining = remaining.subtract(amountInTier);
+        }
+        return total.longValueExact();
+    }
+
+    static TariffSnapshot.Tariff electricity(PriceTier... tiers) {
+        ServicePrice price = ServicePrice.builder()
+                .id(UUID.randomUUID())
+                .serviceType(ServiceType.builder().id(UUID.randomUUID()).code(ServiceCode.ELECTRICITY).build())
+                .startDate(LocalDate.of(2024, 1, 1))
+                .isFlat(false)
+                .tiers(new ArrayList<>(List.of(tiers)))
+                .build();
+        return TariffSnapshot.of(List.of(price)).require(ServiceCode.ELECTRICITY);
+    }
+
+    static PriceTier tier(int min, Integer max, String unitPrice) {
+        return PriceTier.builder().minUsage(min).maxUsage(max).unitPrice(new BigDecimal(unitPrice)).build();
+    }
+}
@@ -0,0 +1,62 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.model.DTO.accounting.generation.GenerationJobDTO;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO;
+import itep.software.bluemoon.repository.InvoiceRepository;
+
+class GenerationJobManagerTest {
+
+    @Test
+    void allowsOnlyOneRunningJobPerPeriodAndReportsProgress() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        InvoiceGenerationEngine engine = mock(InvoiceGenerationEngine.class);
+        when(engine.generate(anyInt(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            GenerationProgress progress = invocation.getArgument(3);
+            progress.started(3);
+            progress.processed(1);
+            progress.error("P.101: broken meter");
+            progress.processed(2);
+            release.await();
+            return InvoiceGenerationReportDTO.builder().status(GenerationStatus.PARTIAL).build();
+        });
+        InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+        when(invoiceRepository.getInvoiceSummary(eq(1), eq(2025))).thenReturn(List.of());
+        GenerationJobManager manager = new GenerationJobManager(engine, invoiceRepository, mock(InvoicePeriodLock.class));
+
+        GenerationJob job = manager.submit(1, 2025, GenerationMode.FULL);
+        assertThrows(RuntimeException.class, () -> manager.submit(1, 2025, GenerationMode.INCREMENTAL));
+        manager.submit(2, 2025, GenerationMode.FULL);
+
+        release.countDown();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!job.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        GenerationJobDTO dto = manager.get(job.getId()).toDTO();
+        assertEquals(GenerationStatus.PARTIAL, dto.getStatus());
+        assertEquals(3, dto.getTotalApartments());
+        assertEquals(3, dto.getProcessedApartments());
+        assertEquals(List.of("P.101: broken meter"), dto.getErrors());
+        assertTrue(dto.getInvoices().isEmpty());
+        assertFalse(manager.isRunning(1, 2025));
+    }
+}
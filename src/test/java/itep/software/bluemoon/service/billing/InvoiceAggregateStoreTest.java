@@ -0,0 +1,87 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import itep.software.bluemoon.entity.accounting.InvoiceStatusAggregate;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.model.DTO.accounting.InvoiceAggregateRebuildDTO;
+import itep.software.bluemoon.model.DTO.accounting.InvoiceAggregateRebuildDTO.StatusAggregateDTO;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import itep.software.bluemoon.repository.InvoiceStatusAggregateRepository;
+
+class InvoiceAggregateStoreTest {
+    private final InvoiceStatusAggregateRepository aggregateRepository = mock(InvoiceStatusAggregateRepository.class);
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final InvoiceAggregateStore store = new InvoiceAggregateStore(aggregateRepository, invoiceRepository, transactionManager,
+            mock(ApplicationEventPublisher.class));
+
+    @Test
+    void appliesDeltasInEnumOrderAndSkipsEmptyOnes() {
+        store.apply(Map.of(
+                InvoiceStatus.OVERDUE, new InvoiceAggregateStore.Totals(3, BigDecimal.valueOf(300)),
+                InvoiceStatus.UNPAID, new InvoiceAggregateStore.Totals(-3, BigDecimal.valueOf(-300)),
+                InvoiceStatus.PARTIAL, InvoiceAggregateStore.Totals.ZERO));
+
+        InOrder order = inOrder(aggregateRepository);
+        order.verify(aggregateRepository).addDelta("UNPAID", -3, BigDecimal.valueOf(-300));
+        order.verify(aggregateRepository).addDelta("OVERDUE", 3, BigDecimal.valueOf(300));
+        verify(aggregateRepository, never()).addDelta(eq("PARTIAL"), anyLong(), any());
+    }
+
+    @Test
+    void rebuildReplacesEveryStatusAndReportsDrift() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(aggregateRepository.findAll()).thenReturn(List.of(
+                new InvoiceStatusAggregate(InvoiceStatus.PENDING, 10, BigDecimal.valueOf(1_000)),
+                new InvoiceStatusAggregate(InvoiceStatus.UNPAID, 4, BigDecimal.valueOf(400))));
+        when(invoiceRepository.sumByStatus()).thenReturn(List.<Object[]>of(
+                new Object[] { InvoiceStatus.PENDING, 10L, BigDecimal.valueOf(1_000) },
+                new Object[] { InvoiceStatus.UNPAID, 5L, BigDecimal.valueOf(500) }));
+
+        InvoiceAggregateRebuildDTO result = store.rebuild();
+
+        verify(aggregateRepository).lockForRebuild();
+        verify(aggregateRepository, times(InvoiceStatus.values().length)).replace(anyString(), anyLong(), any());
+        verify(aggregateRepository).replace("UNPAID", 5, BigDecimal.valueOf(500));
+        verify(aggregateRepository).replace("PAID", 0, BigDecimal.ZERO);
+        assertTrue(result.getDriftDetected());
+        StatusAggregateDTO unpaid = result.getStatuses().stream()
+                .filter(s -> s.getStatus() == InvoiceStatus.UNPAID).findFirst().orElseThrow();
+        assertEquals(4L, unpaid.getStoredCount());
+        assertEquals(5L, unpaid.getInvoiceCount());
+    }
+
+    @Test
+    void rebuildWithoutDriftWhenTotalsMatch() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(aggregateRepository.findAll()).thenReturn(List.of(
+                new InvoiceStatusAggregate(InvoiceStatus.PAID, 2, new BigDecimal("200.00"))));
+        when(invoiceRepository.sumByStatus()).thenReturn(List.<Object[]>of(
+                new Object[] { InvoiceStatus.PAID, 2L, BigDecimal.valueOf(200) }));
+
+        assertFalse(store.rebuild().getDriftDetected());
+    }
+}
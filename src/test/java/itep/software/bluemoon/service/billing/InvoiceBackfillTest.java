@@ -0,0 +1,108 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.accounting.ExtraFee;
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceBackfillReportDTO;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO;
+import itep.software.bluemoon.repository.ApartmentRepository;
+import itep.software.bluemoon.repository.ExtraFeeRepository;
+import itep.software.bluemoon.repository.ServicePriceRepository;
+import itep.software.bluemoon.repository.ServiceTypeRepository;
+import itep.software.bluemoon.repository.VehicleRepository;
+
+class InvoiceBackfillTest {
+    @Test
+    void loadsSharedDataOnceAndPicksTheTariffOfEachMonth() {
+        ApartmentRepository apartmentRepository = mock(ApartmentRepository.class);
+        ServiceTypeRepository serviceTypeRepository = mock(ServiceTypeRepository.class);
+        ServicePriceRepository servicePriceRepository = mock(ServicePriceRepository.class);
+        VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+        ExtraFeeRepository extraFeeRepository = mock(ExtraFeeRepository.class);
+        GenerationJobManager generationJobManager = mock(GenerationJobManager.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        ServiceType management = ServiceType.builder().id(UUID.randomUUID()).code(ServiceCode.MANAGEMENT).build();
+        ServiceType other = ServiceType.builder().id(UUID.randomUUID()).code(ServiceCode.OTHER).build();
+        when(serviceTypeRepository.findAll()).thenReturn(List.of(management, other));
+        List<ServicePrice> prices = List.of(
+                price(management, LocalDate.of(2024, 1, 1), LocalDate.of(2025, 1, 31), 7000),
+                price(management, LocalDate.of(2025, 2, 1), null, 8000));
+        when(servicePriceRepository.findAllPricesBetween(any(), any())).thenAnswer(invocation -> {
+            LocalDate from = invocation.getArgument(0);
+            LocalDate to = invocation.getArgument(1);
+            return prices.stream()
+                    .filter(p -> !p.getStartDate().isAfter(to) && (p.getEndDate() == null || !p.getEndDate().isBefore(from)))
+                    .toList();
+        });
+        Apartment apartment = Apartment.builder().id(UUID.randomUUID()).build();
+        when(extraFeeRepository.findUnbilledForBillableApartments()).thenReturn(List.of(
+                ExtraFee.builder().id(UUID.randomUUID()).apartment(apartment).feeDate(LocalDate.of(2025, 2, 10)).build()));
+        when(generationJobManager.run(anyInt(), anyInt(), eq(GenerationMode.FULL), any(BillingReference.class)))
+                .thenAnswer(invocation -> {
+                    GenerationJob job = new GenerationJob(invocation.getArgument(0), invocation.getArgument(1), GenerationMode.FULL);
+                    job.succeed(InvoiceGenerationReportDTO.builder().status(GenerationStatus.SUCCESS).invoiceCount(10).build(), List.of());
+                    return job;
+                });
+
+        InvoiceBackfill backfill = new InvoiceBackfill(apartmentRepository, serviceTypeRepository, new TariffCache(servicePriceRepository),
+                vehicleRepository, extraFeeRepository, TestCalculators.invoiceCalculator(), generationJobManager, transactionManager);
+        ReflectionTestUtils.setField(backfill, "parallelism", 2);
+        ReflectionTestUtils.setField(backfill, "maxMonths", 24);
+
+        InvoiceBackfillReportDTO report = backfill.run(YearMonth.of(2025, 1), YearMonth.of(2025, 3), GenerationMode.FULL);
+
+        assertEquals(GenerationStatus.SUCCESS, report.getStatus());
+        assertEquals(30, report.getInvoiceCount());
+        assertEquals(List.of(1, 2, 3), report.getMonths().stream().map(m -> m.getMonth()).toList());
+        verify(apartmentRepository, times(1)).findBillableApartments();
+        verify(extraFeeRepository, times(1)).findUnbilledForBillableApartments();
+
+        ArgumentCaptor<BillingReference> january = ArgumentCaptor.forClass(BillingReference.class);
+        ArgumentCaptor<BillingReference> february = ArgumentCaptor.forClass(BillingReference.class);
+        verify(generationJobManager).run(eq(1), eq(2025), eq(GenerationMode.FULL), january.capture());
+        verify(generationJobManager).run(eq(2), eq(2025), eq(GenerationMode.FULL), february.capture());
+        assertEquals(0, BigDecimal.valueOf(7000).compareTo(january.getValue().tariffs().require(ServiceCode.MANAGEMENT).getFlatPrice()));
+        assertEquals(0, BigDecimal.valueOf(8000).compareTo(february.getValue().tariffs().require(ServiceCode.MANAGEMENT).getFlatPrice()));
+        assertEquals(0, january.getValue().extraFees().size());
+        assertEquals(1, february.getValue().extraFees().get(apartment.getId()).size());
+    }
+
+    private static ServicePrice price(ServiceType type, LocalDate start, LocalDate end, long flatPrice) {
+        return ServicePrice.builder()
+                .id(UUID.randomUUID())
+                .serviceType(type)
+                .startDate(start)
+                .endDate(end)
+                .isFlat(true)
+                .flatPrice(BigDecimal.valueOf(flatPrice))
+                .tiers(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,406 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.Building;
+import itep.software.bluemoon.entity.accounting.ExtraFee;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceGenerationCheckpoint;
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.GenerationMode;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.DTO.accounting.generation.InvoiceGenerationReportDTO;
+import itep.software.bluemoon.repository.ApartmentRepository;
+import itep.software.bluemoon.repository.ExtraFeeRepository;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.InvoiceGenerationCheckpointRepository;
+import itep.software.bluemoon.repository.InvoiceRepository;
+import itep.software.bluemoon.repository.ServicePriceRepository;
+import itep.software.bluemoon.repository.ServiceTypeRepository;
+import itep.software.bluemoon.repository.UsageRecordRepository;
+import itep.software.bluemoon.repository.VehicleRepository;
+import jakarta.persistence.EntityManager;
+
+class InvoiceGenerationEngineTest {
+    private static final int BUILDINGS = 3;
+    private static final int CHUNK_SIZE = 50;
+
+    @Test
+    void queryCountStaysConstantAsApartmentCountGrows() {
+        Fixture small = new Fixture(12);
+        Fixture large = new Fixture(1200);
+
+        small.run();
+        large.run();
+
+        assertEquals(small.repositoryCalls(), large.repositoryCalls());
+        for (Fixture fixture : List.of(small, large)) {
+            verify(fixture.extraFeeRepository, times(1)).findUnbilledForBillableApartments();
+            verify(fixture.extraFeeRepository, never()).findByApartmentAndIsBilledFalse(any());
+            verify(fixture.vehicleRepository, never()).findByOwner_Apartment_Id(any());
+            verify(fixture.servicePriceRepository, never()).findActivePriceByCode(any(), any());
+        }
+    }
+
+    @Test
+    void marksEveryBilledExtraFeeWithOneUpdatePerBuilding() {
+        Fixture fixture = new Fixture(90);
+
+        InvoiceGenerationReportDTO report = fixture.run();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UUID>> ids = ArgumentCaptor.forClass(List.class);
+        verify(fixture.extraFeeRepository, times(BUILDINGS)).updateStatusByIds(eq(true), ids.capture());
+
+        Set<UUID> billed = new HashSet<>();
+        ids.getAllValues().forEach(billed::addAll);
+        Set<UUID> expected = new HashSet<>();
+        fixture.fees.forEach(fee -> expected.add(fee.getId()));
+
+        assertEquals(expected, billed);
+        assertEquals(90, report.getInvoiceCount());
+        assertEquals(BUILDINGS, report.getPartitions().size());
+    }
+
+    @Test
+    void incrementalRunRegeneratesOnlyTheApartmentWhoseInputsChanged() {
+        Fixture fixture = new Fixture(30);
+        fixture.run();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Invoice>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(fixture.invoiceBulkWriter, times(BUILDINGS)).insert(inserted.capture());
+        List<Object[]> pending = new ArrayList<>();
+        List<Object[]> attachedFees = new ArrayList<>();
+        for (List<Invoice> invoices : inserted.getAllValues()) {
+            for (Invoice invoice : invoices) {
+                UUID apartmentId = invoice.getApartment().getId();
+                pending.add(new Object[] { UUID.randomUUID(), apartmentId, invoice.getInputFingerprint() });
+                invoice.getDetails().stream()
+                        .filter(d -> d.getReferenceId() != null)
+                        .forEach(d -> attachedFees.add(new Object[] { apartmentId, d.getReferenceId() }));
+            }
+        }
+        when(fixture.invoiceRepository.findFingerprintsByMonthAndYearAndStatus(anyInt(), anyInt(), any())).thenReturn(pending);
+        when(fixture.invoiceDetailRepository.findReferenceIdsByPeriod(anyInt(), anyInt(), any(), any())).thenReturn(attachedFees);
+        // Mọi phí đã nằm trong hóa đơn cũ; phí của căn hộ được tính lại được nạp lại theo id sau khi dọn
+        when(fixture.extraFeeRepository.findUnbilledForBillableApartments()).thenReturn(List.of());
+        when(fixture.extraFeeRepository.findAllById(any())).thenReturn(List.of(fixture.fees.get(7)));
+
+        // Sửa diện tích một căn hộ: chỉ căn đó được tính lại
+        fixture.apartments.get(7).setArea(BigDecimal.valueOf(85));
+        InvoiceGenerationReportDTO report = fixture.engine.generate(1, 2025, GenerationMode.INCREMENTAL);
+
+        assertEquals(1, report.getApartmentCount());
+        assertEquals(1, report.getChangedCount());
+        assertEquals(0, report.getAddedCount());
+        assertEquals(29, report.getUnchangedCount());
+        assertEquals(0, report.getRemovedCount());
+        verify(fixture.invoiceDetailRepository).deleteByInvoiceIds(anyList());
+        verify(fixture.invoiceRepository).deleteByIds(anyList());
+        verify(fixture.invoiceRepository, times(1)).deleteByPeriod(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void loadsOnlyTheBulkDataThePlannedCalculatorsDeclare() {
+        // Chỉ có phí quản lý và phí khác: không nạp chỉ số công tơ hay số xe, kể cả khi chạy theo lô
+        Fixture fixture = new Fixture(120);
+
+        fixture.run();
+        fixture.engine.generate(2, 2025, GenerationMode.STREAMING);
+
+        verifyNoInteractions(fixture.usageRecordRepository, fixture.vehicleRepository);
+        verify(fixture.serviceTypeRepository, times(2)).findAll();
+    }
+
+    @Test
+    void tearsDownPendingInvoicesWithSetBasedStatements() {
+        Fixture fixture = new Fixture(300);
+
+        fixture.run();
+
+        verify(fixture.extraFeeRepository).releaseByInvoicePeriod(1, 2025, InvoiceStatus.PENDING, ServiceCode.OTHER);
+        verify(fixture.invoiceDetailRepository).deleteByInvoicePeriod(1, 2025, InvoiceStatus.PENDING);
+        verify(fixture.invoiceRepository).deleteByPeriod(1, 2025, InvoiceStatus.PENDING);
+        verify(fixture.invoiceRepository, never()).findByMonthAndYearAndStatus(anyInt(), anyInt(), any());
+        verify(fixture.invoiceRepository, never()).deleteAll(any());
+    }
+
+    @Test
+    void streamingRunPersistsEachChunkAndClearsThePersistenceContext() {
+        Fixture fixture = new Fixture(120);
+
+        InvoiceGenerationReportDTO report = fixture.engine.generate(1, 2025, GenerationMode.STREAMING);
+
+        ArgumentCaptor<InvoiceGenerationCheckpoint> checkpoint = ArgumentCaptor.forClass(InvoiceGenerationCheckpoint.class);
+        verify(fixture.checkpointRepository).save(checkpoint.capture());
+        assertEquals(GenerationStatus.SUCCESS, report.getStatus());
+        assertEquals(3, report.getChunkCount());
+        assertEquals(120, report.getInvoiceCount());
+        assertEquals(GenerationStatus.SUCCESS, checkpoint.getValue().getStatus());
+        assertEquals(120, checkpoint.getValue().getProcessedCount());
+        verify(fixture.invoiceBulkWriter, times(3)).insert(anyList());
+        verify(fixture.entityManager, times(3)).clear();
+        verify(fixture.invoiceRepository).deleteByPeriod(1, 2025, InvoiceStatus.PENDING);
+        verify(fixture.extraFeeRepository, never()).findUnbilledForBillableApartments();
+    }
+
+    @Test
+    void streamingRunResumesAfterTheLastCommittedChunk() {
+        Fixture fixture = new Fixture(120);
+        UUID lastCommitted = fixture.apartments.stream().map(Apartment::getId).sorted().toList().get(49);
+        InvoiceGenerationCheckpoint failed = InvoiceGenerationCheckpoint.builder()
+                .id(UUID.randomUUID())
+                .month(1)
+                .year(2025)
+                .lastApartmentId(lastCommitted)
+                .processedCount(50)
+                .invoiceCount(50)
+                .chunkCount(1)
+                .status(GenerationStatus.FAILED)
+                .build();
+        when(fixture.checkpointRepository.findByMonthAndYear(1, 2025)).thenReturn(Optional.of(failed));
+        when(fixture.checkpointRepository.findById(failed.getId())).thenReturn(Optional.of(failed));
+
+        InvoiceGenerationReportDTO report = fixture.engine.generate(1, 2025, GenerationMode.STREAMING);
+
+        assertTrue(report.isResumed());
+        assertEquals(70, report.getApartmentCount());
+        assertEquals(120, failed.getProcessedCount());
+        assertEquals(3, failed.getChunkCount());
+        assertEquals(GenerationStatus.SUCCESS, failed.getStatus());
+        verify(fixture.apartmentRepository, never()).findBillableApartments(any(Limit.class));
+        verify(fixture.invoiceRepository, never()).deleteByPeriod(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void streamingRunWithAFailedApartmentIsNotPublishableAndStartsOverOnRerun() {
+        Fixture fixture = new Fixture(120);
+        fixture.apartments.get(5).setArea(null);
+
+        InvoiceGenerationReportDTO report = fixture.engine.generate(1, 2025, GenerationMode.STREAMING);
+
+        ArgumentCaptor<InvoiceGenerationCheckpoint> checkpoint = ArgumentCaptor.forClass(InvoiceGenerationCheckpoint.class);
+        verify(fixture.checkpointRepository).save(checkpoint.capture());
+        assertEquals(GenerationStatus.PARTIAL, report.getStatus());
+        assertEquals(GenerationStatus.PARTIAL, checkpoint.getValue().getStatus());
+        assertTrue(checkpoint.getValue().getErrorMessage().startsWith("P.105"));
+
+        when(fixture.checkpointRepository.findByMonthAndYear(1, 2025)).thenReturn(Optional.of(checkpoint.getValue()));
+        InvoicePublisher publisher = new InvoicePublisher(fixture.invoiceRepository, fixture.checkpointRepository,
+                mock(GenerationJobManager.class), mock(InvoicePeriodLock.class), fixture.transactionManager,
+                mock(InvoiceAggregateStore.class));
+        assertThrows(RuntimeException.class, () -> publisher.publish(1, 2025, null));
+        verify(fixture.invoiceRepository, never()).updateStatusByPeriod(anyInt(), anyInt(), any(), any(), any(), any());
+
+        // Căn hộ lỗi nằm trước con trỏ: chạy lại phải dọn kỳ và bắt đầu từ đầu thay vì chạy tiếp
+        InvoiceGenerationReportDTO rerun = fixture.engine.generate(1, 2025, GenerationMode.STREAMING);
+        assertFalse(rerun.isResumed());
+        verify(fixture.invoiceRepository, times(2)).deleteByPeriod(1, 2025, InvoiceStatus.PENDING);
+    }
+
+    @Test
+    void resumedRunKeepsFailuresOfEarlierCommittedChunks() {
+        Fixture fixture = new Fixture(120);
+        List<Apartment> byId = fixture.apartments.stream().sorted(Comparator.comparing(Apartment::getId)).toList();
+        // Lô 1 commit với một căn hộ lỗi, lô 2 rollback
+        byId.get(5).setArea(null);
+        when(fixture.invoiceBulkWriter.insert(anyList())).thenReturn(49).thenThrow(new RuntimeException("connection reset")).thenReturn(50);
+
+        InvoiceGenerationReportDTO failed = fixture.engine.generate(1, 2025, GenerationMode.STREAMING);
+
+        ArgumentCaptor<InvoiceGenerationCheckpoint> checkpoint = ArgumentCaptor.forClass(InvoiceGenerationCheckpoint.class);
+        verify(fixture.checkpointRepository).save(checkpoint.capture());
+        assertEquals(GenerationStatus.FAILED, failed.getStatus());
+        assertEquals(1, checkpoint.getValue().getFailedCount());
+
+        when(fixture.checkpointRepository.findByMonthAndYear(1, 2025)).thenReturn(Optional.of(checkpoint.getValue()));
+        InvoiceGenerationReportDTO resumed = fixture.engine.generate(1, 2025, GenerationMode.STREAMING);
+
+        assertTrue(resumed.isResumed());
+        assertEquals(GenerationStatus.PARTIAL, resumed.getStatus());
+        assertEquals(1, resumed.getFailedApartmentCount());
+        assertEquals(GenerationStatus.PARTIAL, checkpoint.getValue().getStatus());
+        InvoicePublisher publisher = new InvoicePublisher(fixture.invoiceRepository, fixture.checkpointRepository,
+                mock(GenerationJobManager.class), mock(InvoicePeriodLock.class), fixture.transactionManager,
+                mock(InvoiceAggregateStore.class));
+        assertThrows(RuntimeException.class, () -> publisher.publish(1, 2025, null));
+        verify(fixture.invoiceRepository, never()).updateStatusByPeriod(anyInt(), anyInt(), any(), any(), any(), any());
+    }
+
+    @Test
+    void parallelRunWithARolledBackBuildingBlocksPublishing() {
+        Fixture fixture = new Fixture(90);
+        // Tòa nhà đầu tiên được lưu bị rollback sau khi prepare đã xóa hóa đơn PENDING cũ của nó
+        when(fixture.invoiceBulkWriter.insert(anyList())).thenThrow(new RuntimeException("connection reset")).thenReturn(30);
+
+        InvoiceGenerationReportDTO report = fixture.run();
+
+        ArgumentCaptor<InvoiceGenerationCheckpoint> checkpoint = ArgumentCaptor.forClass(InvoiceGenerationCheckpoint.class);
+        verify(fixture.checkpointRepository).save(checkpoint.capture());
+        assertEquals(GenerationStatus.PARTIAL, report.getStatus());
+        assertEquals(GenerationStatus.PARTIAL, checkpoint.getValue().getStatus());
+        assertEquals(null, checkpoint.getValue().getLastApartmentId());
+
+        when(fixture.checkpointRepository.findByMonthAndYear(1, 2025)).thenReturn(Optional.of(checkpoint.getValue()));
+        InvoicePublisher publisher = new InvoicePublisher(fixture.invoiceRepository, fixture.checkpointRepository,
+                mock(GenerationJobManager.class), mock(InvoicePeriodLock.class), fixture.transactionManager,
+                mock(InvoiceAggregateStore.class));
+        assertThrows(RuntimeException.class, () -> publisher.publish(1, 2025, null));
+        verify(fixture.invoiceRepository, never()).updateStatusByPeriod(anyInt(), anyInt(), any(), any(), any(), any());
+
+        // Lượt theo lô sau đó không chạy tiếp từ checkpoint không có con trỏ
+        assertFalse(fixture.engine.generate(1, 2025, GenerationMode.STREAMING).isResumed());
+    }
+
+    private static class Fixture {
+        final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+        final InvoiceDetailRepository invoiceDetailRepository = mock(InvoiceDetailRepository.class);
+        final ApartmentRepository apartmentRepository = mock(ApartmentRepository.class);
+        final ServiceTypeRepository serviceTypeRepository = mock(ServiceTypeRepository.class);
+        final ServicePriceRepository servicePriceRepository = mock(ServicePriceRepository.class);
+        final UsageRecordRepository usageRecordRepository = mock(UsageRecordRepository.class);
+        final VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+        final ExtraFeeRepository extraFeeRepository = mock(ExtraFeeRepository.class);
+        final InvoiceBulkWriter invoiceBulkWriter = mock(InvoiceBulkWriter.class);
+        final InvoiceGenerationCheckpointRepository checkpointRepository = mock(InvoiceGenerationCheckpointRepository.class);
+        final EntityManager entityManager = mock(EntityManager.class);
+        final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        final List<Apartment> apartments = new ArrayList<>();
+        final List<ExtraFee> fees = new ArrayList<>();
+        final InvoiceGenerationEngine engine;
+
+        Fixture(int apartmentCount) {
+            List<Building> buildings = new ArrayList<>();
+            for (int b = 0; b < BUILDINGS; b++) {
+                buildings.add(Building.builder().id(UUID.randomUUID()).name("B" + b).build());
+            }
+
+            for (int i = 0; i < apartmentCount; i++) {
+                Apartment apartment = Apartment.builder()
+                        .id(UUID.randomUUID())
+                        .roomNumber(100 + i)
+                        .area(BigDecimal.valueOf(70))
+                        .building(buildings.get(i % BUILDINGS))
+                        .build();
+                apartments.add(apartment);
+                fees.add(ExtraFee.builder()
+                        .id(UUID.randomUUID())
+                        .apartment(apartment)
+                        .title("Cleaning")
+                        .quantity(BigDecimal.ONE)
+                        .amount(BigDecimal.valueOf(50000))
+                        .build());
+            }
+
+            ServiceType management = ServiceType.builder().id(UUID.randomUUID()).code(ServiceCode.MANAGEMENT).build();
+            ServiceType other = ServiceType.builder().id(UUID.randomUUID()).code(ServiceCode.OTHER).build();
+            ServicePrice managementPrice = ServicePrice.builder()
+                    .id(UUID.randomUUID())
+                    .serviceType(management)
+                    .startDate(LocalDate.of(2020, 1, 1))
+                    .isFlat(true)
+                    .flatPrice(BigDecimal.valueOf(7000))
+                    .tiers(List.of())
+                    .build();
+
+            when(apartmentRepository.findBillableApartments()).thenReturn(apartments);
+            when(serviceTypeRepository.findAll()).thenReturn(List.of(management, other));
+            when(servicePriceRepository.findAllPricesBetween(any(), any())).thenReturn(List.of(managementPrice));
+            when(extraFeeRepository.findUnbilledForBillableApartments()).thenReturn(fees);
+
+            when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+            // Keyset theo id: trả về lô kế tiếp sau con trỏ
+            List<Apartment> byId = apartments.stream().sorted(Comparator.comparing(Apartment::getId)).toList();
+            when(apartmentRepository.countBillableApartments()).thenReturn((long) apartmentCount);
+            when(apartmentRepository.findBillableApartments(any(Limit.class)))
+                    .thenAnswer(invocation -> page(byId, null, invocation.getArgument(0)));
+            when(apartmentRepository.findBillableApartmentsAfter(any(), any(Limit.class)))
+                    .thenAnswer(invocation -> page(byId, invocation.getArgument(0), invocation.getArgument(1)));
+            when(extraFeeRepository.findUnbilledByApartmentIds(any())).thenAnswer(invocation -> {
+                Collection<UUID> ids = invocation.getArgument(0);
+                return fees.stream().filter(fee -> ids.contains(fee.getApartment().getId())).toList();
+            });
+            when(checkpointRepository.save(any())).thenAnswer(invocation -> {
+                InvoiceGenerationCheckpoint saved = invocation.getArgument(0);
+                saved.setId(UUID.randomUUID());
+                when(checkpointRepository.findById(saved.getId())).thenReturn(Optional.of(saved));
+                return saved;
+            });
+
+            when(invoiceRepository.sumByPeriodAndStatus(anyInt(), anyInt(), any(), any()))
+                    .thenReturn(List.<Object[]>of(new Object[] { 0L, BigDecimal.ZERO }));
+
+            PendingInvoiceTeardown teardown = new PendingInvoiceTeardown(invoiceRepository, invoiceDetailRepository,
+                    extraFeeRepository, checkpointRepository, mock(InvoiceAggregateStore.class), mock(RevenueRollupStore.class));
+            InvoiceCalculator calculator = TestCalculators.invoiceCalculator();
+            TariffCache tariffCache = new TariffCache(servicePriceRepository);
+            InvoiceBatch invoiceBatch = new InvoiceBatch(calculator, invoiceBulkWriter, extraFeeRepository);
+            ChunkedInvoiceGenerator chunked = new ChunkedInvoiceGenerator(invoiceRepository, apartmentRepository,
+                    serviceTypeRepository, tariffCache, usageRecordRepository, vehicleRepository, extraFeeRepository,
+                    checkpointRepository, calculator, invoiceBatch, teardown, entityManager, transactionManager);
+            ReflectionTestUtils.setField(chunked, "chunkSize", CHUNK_SIZE);
+
+            engine = new InvoiceGenerationEngine(invoiceRepository, invoiceDetailRepository, apartmentRepository, serviceTypeRepository,
+                    tariffCache, usageRecordRepository, vehicleRepository, extraFeeRepository,
+                    calculator, invoiceBatch, teardown, chunked, checkpointRepository, transactionManager);
+            ReflectionTestUtils.setField(engine, "parallelism", 2);
+        }
+
+        private static List<Apartment> page(List<Apartment> byId, UUID after, Limit limit) {
+            return byId.stream()
+                    .filter(a -> after == null || a.getId().compareTo(after) > 0)
+                    .limit(limit.max())
+                    .toList();
+        }
+
+        InvoiceGenerationReportDTO run() {
+            return engine.generate(1, 2025, GenerationMode.FULL);
+        }
+
+        int repositoryCalls() {
+            return List.of(invoiceRepository, invoiceDetailRepository, apartmentRepository, serviceTypeRepository, servicePriceRepository,
+                            usageRecordRepository, vehicleRepository, extraFeeRepository)
+                    .stream()
+                    .mapToInt(repository -> mockingDetails(repository).getInvocations().size())
+                    .sum();
+        }
+    }
+}
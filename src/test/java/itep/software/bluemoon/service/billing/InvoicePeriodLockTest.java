@@ -0,0 +1,59 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class InvoicePeriodLockTest {
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final InvoicePeriodLock lock = new InvoicePeriodLock(dataSource);
+
+    @Test
+    void failsFastWhenAnotherSessionHoldsThePeriod() throws Exception {
+        stubLockResults(false);
+        ReflectionTestUtils.setField(lock, "waitSeconds", 0L);
+
+        assertThrows(RuntimeException.class, () -> lock.acquire(1, 2025));
+
+        verify(statement).setInt(1, InvoicePeriodLock.NAMESPACE);
+        verify(statement).setInt(2, 2025 * 12 + 1);
+        verify(connection).close();
+    }
+
+    @Test
+    void queuesUntilThePeriodIsFreeAndUnlocksOnClose() throws Exception {
+        // Hai lần thử đầu bị chiếm, lần thứ ba lấy được, sau đó pg_advisory_unlock trả true
+        stubLockResults(false, false, true, true);
+        ReflectionTestUtils.setField(lock, "waitSeconds", 5L);
+        ReflectionTestUtils.setField(lock, "pollMillis", 1L);
+
+        try (InvoicePeriodLock.Lease lease = lock.acquire(1, 2025)) {
+            verify(connection).setAutoCommit(true);
+        }
+
+        verify(connection).prepareStatement("SELECT pg_advisory_unlock(?, ?)");
+        verify(connection).close();
+    }
+
+    private void stubLockResults(Boolean first, Boolean... next) throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(first, next);
+    }
+}
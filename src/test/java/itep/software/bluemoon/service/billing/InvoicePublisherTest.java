@@ -0,0 +1,78 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import itep.software.bluemoon.entity.accounting.InvoiceGenerationCheckpoint;
+import itep.software.bluemoon.enumeration.GenerationStatus;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.model.DTO.accounting.InvoicePublishResultDTO;
+import itep.software.bluemoon.repository.InvoiceGenerationCheckpointRepository;
+import itep.software.bluemoon.repository.InvoiceRepository;
+
+class InvoicePublisherTest {
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private final InvoiceGenerationCheckpointRepository checkpointRepository = mock(InvoiceGenerationCheckpointRepository.class);
+    private final GenerationJobManager generationJobManager = mock(GenerationJobManager.class);
+    private final InvoicePeriodLock invoicePeriodLock = mock(InvoicePeriodLock.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final InvoiceAggregateStore invoiceAggregateStore = mock(InvoiceAggregateStore.class);
+    private final InvoicePublisher publisher = new InvoicePublisher(invoiceRepository, checkpointRepository,
+            generationJobManager, invoicePeriodLock, transactionManager, invoiceAggregateStore);
+
+    @Test
+    void publishesThePeriodWithOneUpdateUnderTheMonthLock() {
+        ReflectionTestUtils.setField(publisher, "paymentTermDays", 15);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(checkpointRepository.findByMonthAndYear(1, 2025)).thenReturn(Optional.empty());
+        when(invoiceRepository.sumByPeriodAndStatus(1, 2025, null, InvoiceStatus.PENDING)).thenReturn(List.<Object[]>of(
+                new Object[] { 120L, BigDecimal.valueOf(6_000_000) }));
+        when(invoiceRepository.updateStatusByPeriod(anyInt(), anyInt(), any(), any(), any(), any())).thenReturn(120);
+        when(invoiceRepository.countByStatusForPeriod(1, 2025, null)).thenReturn(List.<Object[]>of(
+                new Object[] { InvoiceStatus.UNPAID, 120L }));
+
+        InvoicePublishResultDTO result = publisher.publish(1, 2025, null);
+
+        ArgumentCaptor<LocalDateTime> overdue = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(invoicePeriodLock).acquire(1, 2025);
+        verify(invoiceRepository).updateStatusByPeriod(anyInt(), anyInt(), any(), any(), overdue.capture(), any());
+        verify(invoiceRepository, never()).findByMonthAndYearAndStatus(anyInt(), anyInt(), any());
+        assertEquals(120, result.getPublishedCount());
+        assertEquals(120L, result.getStatusCounts().get(InvoiceStatus.UNPAID));
+        assertEquals(LocalDate.now().plusDays(15), overdue.getValue().toLocalDate());
+        verify(invoiceAggregateStore).moved(InvoiceStatus.PENDING, InvoiceStatus.UNPAID,
+                new InvoiceAggregateStore.Totals(120, BigDecimal.valueOf(6_000_000)));
+    }
+
+    @Test
+    void refusesWhileGenerationIsRunningOrIncomplete() {
+        when(generationJobManager.isRunning(1, 2025)).thenReturn(true);
+        assertThrows(RuntimeException.class, () -> publisher.publish(1, 2025, null));
+        verify(invoicePeriodLock, never()).acquire(anyInt(), anyInt());
+
+        when(generationJobManager.isRunning(1, 2025)).thenReturn(false);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(checkpointRepository.findByMonthAndYear(1, 2025)).thenReturn(Optional.of(
+                InvoiceGenerationCheckpoint.builder().month(1).year(2025).status(GenerationStatus.FAILED).build()));
+        assertThrows(RuntimeException.class, () -> publisher.publish(1, 2025, null));
+        verify(invoiceRepository, never()).updateStatusByPeriod(anyInt(), anyInt(), any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,44 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import itep.software.bluemoon.model.DTO.accounting.InvoiceLineItemDTO;
+
+class LineItemEncoderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LineItemEncoder encoder = new LineItemEncoder(objectMapper);
+
+    @Test
+    void writesSameJsonAsSerializingDtos() throws Exception {
+        List<InvoiceLineItemDTO> expected = List.of(
+                item("Tier 1 (1.806)", 50, new BigDecimal("1806.00"), 90_300),
+                item("Car \"VIP\" parking fee", 1, null, 1_200_000));
+
+        String json = encoder.begin()
+                .add("Tier 1 (1.806)", 50, new BigDecimal("1806.00"), 90_300)
+                .add("Car \"VIP\" parking fee", 1, null, 1_200_000)
+                .toJson();
+
+        assertEquals(objectMapper.writeValueAsString(expected), json);
+        assertEquals(expected, encoder.decode(json));
+        // Bộ đệm được tái sử dụng: lần sau không còn dữ liệu cũ
+        assertEquals("[]", encoder.begin().toJson());
+        assertEquals(List.of(), encoder.decode(null));
+    }
+
+    private static InvoiceLineItemDTO item(String description, long quantity, BigDecimal unitPrice, long amount) {
+        return InvoiceLineItemDTO.builder()
+                .description(description)
+                .quantity(BigDecimal.valueOf(quantity))
+                .unitPrice(unitPrice)
+                .amount(BigDecimal.valueOf(amount))
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.repository.InvoiceRepository;
+
+class OverdueSweeperTest {
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private final InvoicePeriodLock invoicePeriodLock = mock(InvoicePeriodLock.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InvoiceAggregateStore invoiceAggregateStore = mock(InvoiceAggregateStore.class);
+    private final OverdueSweeper sweeper = new OverdueSweeper(invoiceRepository, invoicePeriodLock, transactionManager,
+            invoiceAggregateStore, meterRegistry);
+
+    @Test
+    void leaderSweepsInBatchesUntilAShortBatch() {
+        ReflectionTestUtils.setField(sweeper, "batchSize", 100);
+        ReflectionTestUtils.setField(sweeper, "maxBatches", 10);
+        InvoicePeriodLock.Lease lease = mock(InvoicePeriodLock.Lease.class);
+        when(invoicePeriodLock.tryAcquireJob(eq(OverdueSweeper.JOB_KEY), anyString())).thenReturn(lease);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(invoiceRepository.markOverdueBatch(anyList(), eq("OVERDUE"), any(), eq(100))).thenReturn(
+                batch(new Object[] { "UNPAID", 100L, BigDecimal.valueOf(1_000) }),
+                batch(new Object[] { "UNPAID", 60L, BigDecimal.valueOf(600) }, new Object[] { "PARTIAL", 40L, BigDecimal.valueOf(400) }),
+                batch(new Object[] { "UNPAID", 37L, BigDecimal.valueOf(370) }));
+
+        sweeper.sweep();
+
+        verify(invoiceRepository, times(3)).markOverdueBatch(anyList(), anyString(), any(), anyInt());
+        verify(lease).close();
+        assertEquals(237.0, meterRegistry.get("bluemoon.invoice.overdue.transitioned").counter().count());
+        assertEquals(1, meterRegistry.get("bluemoon.invoice.overdue.sweep").timer().count());
+        // Lô thứ hai: trừ khỏi từng trạng thái cũ, cộng tổng vào OVERDUE
+        verify(invoiceAggregateStore).apply(Map.of(
+                InvoiceStatus.UNPAID, new InvoiceAggregateStore.Totals(-60, BigDecimal.valueOf(-600)),
+                InvoiceStatus.PARTIAL, new InvoiceAggregateStore.Totals(-40, BigDecimal.valueOf(-400)),
+                InvoiceStatus.OVERDUE, new InvoiceAggregateStore.Totals(100, BigDecimal.valueOf(1_000))));
+    }
+
+    @Test
+    void followerSkipsWhenAnotherNodeHoldsTheLock() {
+        when(invoicePeriodLock.tryAcquireJob(eq(OverdueSweeper.JOB_KEY), anyString())).thenReturn(null);
+
+        sweeper.sweep();
+
+        verify(invoiceRepository, never()).markOverdueBatch(anyList(), anyString(), any(), anyInt());
+        assertEquals(1.0, meterRegistry.get("bluemoon.invoice.overdue.skipped").counter().count());
+    }
+
+    private static List<Object[]> batch(Object[]... rows) {
+        return List.of(rows);
+    }
+}
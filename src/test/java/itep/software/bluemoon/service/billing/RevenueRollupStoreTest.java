@@ -0,0 +1,81 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import itep.software.bluemoon.entity.Apartment;
+import itep.software.bluemoon.entity.Building;
+import itep.software.bluemoon.entity.accounting.Invoice;
+import itep.software.bluemoon.entity.accounting.InvoiceDetail;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.RevenueRollupRepository;
+
+class RevenueRollupStoreTest {
+    private final RevenueRollupRepository revenueRollupRepository = mock(RevenueRollupRepository.class);
+    private final InvoiceDetailRepository invoiceDetailRepository = mock(InvoiceDetailRepository.class);
+    private final RevenueRollupStore store = new RevenueRollupStore(revenueRollupRepository, invoiceDetailRepository,
+            mock(PlatformTransactionManager.class), mock(ApplicationEventPublisher.class));
+
+    @Test
+    void addsOneDeltaPerPeriodBuildingAndService() {
+        Building building = Building.builder().id(UUID.randomUUID()).build();
+        ServiceType management = ServiceType.builder().id(UUID.randomUUID()).code(ServiceCode.MANAGEMENT).build();
+        ServiceType water = ServiceType.builder().id(UUID.randomUUID()).code(ServiceCode.WATER).build();
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Invoice invoice = Invoice.builder()
+                    .apartment(Apartment.builder().id(UUID.randomUUID()).building(building).build())
+                    .month(1)
+                    .year(2025)
+                    .status(InvoiceStatus.PENDING)
+                    .build();
+            invoice.getDetails().add(InvoiceDetail.builder().invoice(invoice).serviceType(water).amount(BigDecimal.valueOf(100)).build());
+            invoice.getDetails().add(InvoiceDetail.builder().invoice(invoice).serviceType(management).amount(BigDecimal.valueOf(500)).build());
+            invoices.add(invoice);
+        }
+
+        store.added(invoices);
+
+        verify(revenueRollupRepository, times(2)).addDelta(any(), anyInt(), anyInt(), any(), anyString(), any(), any());
+        InOrder order = inOrder(revenueRollupRepository);
+        order.verify(revenueRollupRepository).addDelta(any(), eq(2025), eq(1),
+                eq(building.getId()), eq("WATER"),
+                eq(BigDecimal.valueOf(300)), eq(BigDecimal.ZERO));
+        order.verify(revenueRollupRepository).addDelta(any(), eq(2025), eq(1),
+                eq(building.getId()), eq("MANAGEMENT"),
+                eq(BigDecimal.valueOf(1500)), eq(BigDecimal.ZERO));
+    }
+
+    @Test
+    void subtractsTheDeletedPeriodBeforeItIsDeleted() {
+        UUID building = UUID.randomUUID();
+        when(invoiceDetailRepository.sumRevenueByInvoicePeriod(1, 2025, InvoiceStatus.PENDING)).thenReturn(List.<Object[]>of(
+                new Object[] { 2025, 1, building, ServiceCode.ELECTRICITY, BigDecimal.valueOf(900), BigDecimal.ZERO }));
+
+        store.removePeriod(1, 2025, InvoiceStatus.PENDING);
+
+        verify(revenueRollupRepository).addDelta(any(), eq(2025), eq(1),
+                eq(building), eq("ELECTRICITY"),
+                eq(BigDecimal.valueOf(-900)), eq(BigDecimal.ZERO));
+    }
+}
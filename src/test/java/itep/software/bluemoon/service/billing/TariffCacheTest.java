@@ -0,0 +1,59 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import itep.software.bluemoon.entity.accounting.ServicePrice;
+import itep.software.bluemoon.entity.accounting.ServiceType;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.repository.ServicePriceRepository;
+
+class TariffCacheTest {
+    private final ServicePriceRepository servicePriceRepository = mock(ServicePriceRepository.class);
+    private final TariffCache cache = new TariffCache(servicePriceRepository);
+
+    @Test
+    void resolvesEachPeriodOnceUntilInvalidated() {
+        ServiceType management = ServiceType.builder().id(UUID.randomUUID()).code(ServiceCode.MANAGEMENT).build();
+        // Tháng 3/2024 giao với cả hai bảng giá: lấy bảng bắt đầu muộn nhất
+        when(servicePriceRepository.findAllPricesBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31))).thenReturn(List.of(
+                price(management, LocalDate.of(2023, 1, 1), 7000),
+                price(management, LocalDate.of(2024, 3, 15), 8000)));
+
+        TariffSnapshot first = cache.forPeriod(3, 2024);
+        TariffSnapshot second = cache.forPeriod(YearMonth.of(2024, 3));
+
+        assertSame(first, second);
+        assertEquals(0, BigDecimal.valueOf(8000).compareTo(cache.get(ServiceCode.MANAGEMENT, YearMonth.of(2024, 3)).getFlatPrice()));
+        verify(servicePriceRepository, times(1)).findAllPricesBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+
+        new TariffCacheInvalidator(cache).onPriceChanged(management);
+
+        assertNotSame(first, cache.forPeriod(3, 2024));
+        verify(servicePriceRepository, times(2)).findAllPricesBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+    }
+
+    private static ServicePrice price(ServiceType type, LocalDate start, long flatPrice) {
+        return ServicePrice.builder()
+                .id(UUID.randomUUID())
+                .serviceType(type)
+                .startDate(start)
+                .isFlat(true)
+                .flatPrice(BigDecimal.valueOf(flatPrice))
+                .tiers(List.of())
+                .build();
+    }
+}
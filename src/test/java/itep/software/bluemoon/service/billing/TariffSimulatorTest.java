@@ -0,0 +1,92 @@
+package itep.software.bluemoon.service.billing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import itep.software.bluemoon.enumeration.InvoiceStatus;
+import itep.software.bluemoon.enumeration.ServiceCode;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationRequestDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationRequestDTO.ProposedPriceDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationRequestDTO.ProposedTierDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationResultDTO;
+import itep.software.bluemoon.model.DTO.accounting.simulation.TariffSimulationResultDTO.ServiceDeltaDTO;
+import itep.software.bluemoon.repository.InvoiceDetailRepository;
+import itep.software.bluemoon.repository.ServicePriceRepository;
+import itep.software.bluemoon.repository.UsageRecordRepository;
+import itep.software.bluemoon.repository.VehicleRepository;
+
+class TariffSimulatorTest {
+    private final InvoiceDetailRepository invoiceDetailRepository = mock(InvoiceDetailRepository.class);
+    private final UsageRecordRepository usageRecordRepository = mock(UsageRecordRepository.class);
+    private final VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+    private final ServicePriceRepository servicePriceRepository = mock(ServicePriceRepository.class);
+    private final TariffSimulator simulator = new TariffSimulator(invoiceDetailRepository, usageRecordRepository,
+            vehicleRepository, TestCalculators.invoiceCalculator(), new TariffCache(servicePriceRepository));
+
+    @Test
+    void replaysProposedServicesAndKeepsOthersAsIssued() {
+        ReflectionTestUtils.setField(simulator, "maxMonths", 120);
+        UUID building = UUID.randomUUID();
+        UUID apartment = UUID.randomUUID();
+        List<Object[]> actual = new ArrayList<>();
+        List<Object[]> usage = new ArrayList<>();
+        for (int month = 1; month <= 2; month++) {
+            // 70 m2 x 7.000 và 100 kWh x 2.000 đã phát hành
+            actual.add(new Object[] { 2024, month, apartment, BigDecimal.valueOf(70), building, "A", ServiceCode.MANAGEMENT, BigDecimal.valueOf(490_000) });
+            actual.add(new Object[] { 2024, month, apartment, BigDecimal.valueOf(70), building, "A", ServiceCode.ELECTRICITY, BigDecimal.valueOf(200_000) });
+            actual.add(new Object[] { 2024, month, apartment, BigDecimal.valueOf(70), building, "A", ServiceCode.OTHER, BigDecimal.valueOf(50_000) });
+            usage.add(new Object[] { 2024, month, apartment, ServiceCode.ELECTRICITY, BigDecimal.valueOf(100) });
+        }
+        when(invoiceDetailRepository.sumAmountByApartmentAndService(2024 * 12 + 1, 2024 * 12 + 2, InvoiceStatus.PENDING)).thenReturn(actual);
+        when(usageRecordRepository.findQuantitiesByPeriodRange(2024 * 12 + 1, 2024 * 12 + 2)).thenReturn(usage);
+
+        // Đề xuất: điện 0-50 giá 2.000, trên 50 giá 3.000
+        TariffSimulationRequestDTO request = TariffSimulationRequestDTO.builder()
+                .fromMonth(1).fromYear(2024).toMonth(2).toYear(2024)
+                .prices(List.of(ProposedPriceDTO.builder()
+                        .serviceCode(ServiceCode.ELECTRICITY)
+                        .isFlat(false)
+                        .tiers(List.of(
+                                ProposedTierDTO.builder().minUsage(0).maxUsage(50).unitPrice(BigDecimal.valueOf(2000)).build(),
+                                ProposedTierDTO.builder().minUsage(50).unitPrice(BigDecimal.valueOf(3000)).build()))
+                        .build()))
+                .build();
+
+        TariffSimulationResultDTO result = simulator.simulate(request);
+
+        ServiceDeltaDTO electricity = result.getServices().stream()
+                .filter(s -> s.getServiceCode() == ServiceCode.ELECTRICITY).findFirst().orElseThrow();
+        ServiceDeltaDTO management = result.getServices().stream()
+                .filter(s -> s.getServiceCode() == ServiceCode.MANAGEMENT).findFirst().orElseThrow();
+        assertEquals(2, result.getInvoiceCount());
+        assertEquals(0, BigDecimal.valueOf(500_000).compareTo(electricity.getSimulatedAmount()));
+        assertEquals(0, BigDecimal.valueOf(100_000).compareTo(electricity.getDeltaAmount()));
+        assertEquals(25.0, electricity.getDeltaPercentage());
+        assertEquals(0, BigDecimal.ZERO.compareTo(management.getDeltaAmount()));
+        assertEquals(0, BigDecimal.valueOf(100_000).compareTo(result.getBuildings().get(0).getDeltaAmount()));
+        verify(vehicleRepository, never()).countByApartmentAndType();
+    }
+
+    @Test
+    void rejectsReversedPeriod() {
+        ReflectionTestUtils.setField(simulator, "maxMonths", 120);
+        TariffSimulationRequestDTO request = TariffSimulationRequestDTO.builder()
+                .fromMonth(5).fromYear(2025).toMonth(1).toYear(2025)
+                .prices(List.of())
+                .build();
+
+        assertThrows(RuntimeException.class, () -> simulator.simulate(request));
+    }
+}
@@ -0,0 +1,29 @@
+package itep.software.bluemoon.service.billing;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import itep.software.bluemoon.service.billing.calculator.ElectricityCalculator;
+import itep.software.bluemoon.service.billing.calculator.ExtraFeeCalculator;
+import itep.software.bluemoon.service.billing.calculator.ManagementFeeCalculator;
+import itep.software.bluemoon.service.billing.calculator.ParkingFeeCalculator;
+import itep.software.bluemoon.service.billing.calculator.WaterCalculator;
+
+/**
+ * InvoiceCalculator với đủ các calculator như Spring đăng ký
+ */
+final class TestCalculators {
+    private TestCalculators() {
+    }
+
+    static InvoiceCalculator invoiceCalculator() {
+        LineItemEncoder encoder = new LineItemEncoder(new ObjectMapper());
+        return new InvoiceCalculator(List.of(
+                new ManagementFeeCalculator(encoder),
+                new ParkingFeeCalculator(encoder),
+                new ElectricityCalculator(encoder),
+                new WaterCalculator(encoder),
+                new ExtraFeeCalculator()));
+    }
+}
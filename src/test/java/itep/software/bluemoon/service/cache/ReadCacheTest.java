@@ -0,0 +1,96 @@
+package itep.software.bluemoon.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class ReadCacheTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final ReadCache<String, Integer> cache = new ReadCache<>("test", Duration.ofSeconds(30), 100, clock::get);
+
+    @Test
+    void concurrentRequestsShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> leader = executor.submit(() -> cache.get("k", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return 42;
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> cache.get("k", () -> loads.incrementAndGet())));
+            }
+            while (cache.coalesced() < 3) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> follower : followers) {
+                assertEquals(42, follower.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.misses());
+        assertEquals(3, cache.coalesced());
+    }
+
+    @Test
+    void keepsResultUntilTtlAndDoesNotCacheFailures() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> cache.get("k", () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals(1, cache.get("k", loads::incrementAndGet));
+        clock.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertEquals(1, cache.get("k", loads::incrementAndGet));
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(2, cache.get("k", loads::incrementAndGet));
+
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotKept() {
+        AtomicInteger loads = new AtomicInteger();
+
+        // Hóa đơn đổi và commit trong lúc đang đọc: kết quả cũ chỉ trả cho lời gọi này
+        assertEquals(1, cache.get("k", () -> {
+            cache.invalidate();
+            return loads.incrementAndGet();
+        }));
+        assertEquals(2, cache.get("k", loads::incrementAndGet));
+        assertEquals(2, cache.get("k", loads::incrementAndGet));
+        assertEquals(2, cache.misses());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package itep.software.bluemoon.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class VndTest {
+
+    @Test
+    void productRoundsHalfUpLikeVndUtils() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal area = BigDecimal.valueOf(random.nextLong(-20_000, 200_000), 2);
+            BigDecimal price = BigDecimal.valueOf(random.nextLong(0, 5_000_000), 2);
+            assertEquals(VndUtils.multiply(area, price).longValueExact(), Vnd.product(area, price).dong(),
+                    area + " x " + price);
+        }
+        assertEquals(3, Vnd.product(new BigDecimal("0.5"), new BigDecimal("5")).dong());
+        assertEquals(-3, Vnd.product(new BigDecimal("-0.5"), new BigDecimal("5")).dong());
+    }
+
+    @Test
+    void formatsLikeTheDecimalFormatPattern() {
+        for (long value : new long[] { 0, 7, 999, 1_000, 12_345, 1_234_567, -1_234_567, Long.MAX_VALUE }) {
+            assertEquals(VndUtils.format(BigDecimal.valueOf(value)), Vnd.format(value));
+        }
+        assertEquals("1.234.568", VndUtils.format(new BigDecimal("1234567.50")));
+        assertEquals("12.345.678.901.234.567.890", VndUtils.format(new BigDecimal("12345678901234567890")));
+    }
+
+    @Test
+    void arithmeticFailsOnOverflowInsteadOfWrapping() {
+        assertThrows(ArithmeticException.class, () -> Vnd.of(Long.MAX_VALUE).plus(Vnd.of(1)));
+        assertThrows(ArithmeticException.class, () -> Vnd.of(Long.MAX_VALUE / 2).times(3));
+        assertEquals(Vnd.of(Long.MAX_VALUE - 1), Vnd.product(BigDecimal.valueOf(Long.MAX_VALUE - 1), BigDecimal.ONE));
+    }
+
+    @Test
+    void percentOfKeepsTwoDecimals() {
+        assertEquals(33.33, Vnd.of(1).percentOf(Vnd.of(3)));
+        assertEquals(0.0, Vnd.of(1).percentOf(Vnd.ZERO));
+    }
+}